@@ -0,0 +1,262 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Reads the CSVs AdvantageScope and the DS log viewer export, but only the columns we ask for.
+// The file is memory mapped and scanned a byte at a time for delimiters; columns nobody selected
+// are stepped over without ever becoming Strings, and selected ones are parsed straight from the
+// bytes into primitives.  Only getString() allocates.  A scanner can also be given just a slice
+// of the file (see chunks()), so several can work through one big CSV at once.
+public class CsvScanner {
+    private final ByteBuffer data;
+    private final int end;
+    private int position;
+
+    private String[] header = new String[0];
+    private int[] slotOf = new int[0]; // column index -> slot, -1 if the column isn't selected
+    private int slots = 0;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] quoted = new boolean[8];
+
+    public CsvScanner(ByteBuffer data, int start, int end) {
+        this.data = data;
+        this.position = start;
+        this.end = end;
+    }
+
+    public CsvScanner(ByteBuffer data) {
+        this(data, 0, data.limit());
+    }
+
+    public static ByteBuffer map(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) { throw new IOException(fileName + " is too large to map"); }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static CsvScanner open(String fileName) throws IOException {
+        return new CsvScanner(map(fileName));
+    }
+
+    // reads the first row as column names
+    public String[] readHeader() {
+        ArrayList<String> names = new ArrayList<>();
+        while (position < end) {
+            int field = names.size();
+            ensureSlot(field);
+            scanField(field);
+            names.add(string(field));
+            if (position >= end || data.get(position - 1) == '\n') { break; }
+        }
+        header = names.toArray(new String[0]);
+        slotOf = new int[header.length];
+        Arrays.fill(slotOf, -1);
+        return header;
+    }
+
+    // the header of another scanner over the same file, for scanners that start partway through
+    public void useHeader(String[] header) {
+        this.header = header;
+        slotOf = new int[header.length];
+        Arrays.fill(slotOf, -1);
+    }
+
+    public boolean has(String column) {
+        for (String name : header) {
+            if (name.equals(column)) { return true; }
+        }
+        return false;
+    }
+
+    public int select(String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(column)) { return select(i); }
+        }
+        throw new IllegalArgumentException("no column \"" + column + "\" in CSV");
+    }
+
+    public int select(int column) {
+        if (slotOf[column] == -1) {
+            ensureSlot(slots);
+            slotOf[column] = slots++;
+        }
+        return slotOf[column];
+    }
+
+    // moves to the next row; false once there are no more
+    public boolean next() {
+        // blank lines (and the newline at the end of the file) aren't rows
+        while (position < end && (data.get(position) == '\n' || data.get(position) == '\r')) { position++; }
+        if (position >= end) { return false; }
+
+        Arrays.fill(starts, 0, slots, 0);
+        Arrays.fill(ends, 0, slots, 0);
+        Arrays.fill(quoted, 0, slots, false);
+        int column = 0;
+        while (true) {
+            int slot = column < slotOf.length ? slotOf[column] : -1;
+            if (slot >= 0) {
+                scanField(slot);
+            } else {
+                skipField();
+            }
+            column++;
+            if (position >= end || data.get(position - 1) == '\n') { return true; }
+        }
+    }
+
+    // where the next row starts
+    public int position() {
+        return position;
+    }
+
+    public boolean is(int slot, String value) {
+        int length = ends[slot] - starts[slot];
+        if (quoted[slot] || length != value.length()) { return quoted[slot] && getString(slot).equals(value); }
+        for (int i = 0; i < length; i++) {
+            if (data.get(starts[slot] + i) != value.charAt(i)) { return false; }
+        }
+        return true;
+    }
+
+    public int getInt(int slot) {
+        int p = starts[slot], e = ends[slot];
+        boolean negative = p < e && data.get(p) == '-';
+        if (negative || (p < e && data.get(p) == '+')) { p++; }
+        // anything unusual (no digits, too many digits, not a digit) gets parsed the slow way so it fails the same way
+        if (quoted[slot] || p == e || e - p > 9) { return Integer.parseInt(getString(slot)); }
+        int value = 0;
+        for (; p < e; p++) {
+            int digit = data.get(p) - '0';
+            if (digit < 0 || digit > 9) { return Integer.parseInt(getString(slot)); }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public double getDouble(int slot) {
+        int p = starts[slot], e = ends[slot];
+        if (quoted[slot]) { return Double.parseDouble(getString(slot)); }
+        boolean negative = p < e && data.get(p) == '-';
+        if (negative || (p < e && data.get(p) == '+')) { p++; }
+
+        // Plain decimals with up to 15 significant digits are the digits as a long, divided by a power of ten: both are
+        // exact as doubles, so the one division is correctly rounded and gives exactly what Double.parseDouble would.
+        // Anything else (exponents, long fractions, NaN...) goes to Double.parseDouble.
+        long digits = 0;
+        int count = 0, scale = 0;
+        boolean point = false, any = false;
+        for (; p < e; p++) {
+            byte c = data.get(p);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (digits == 0 && c == '0') {
+                    if (point) { scale++; }
+                    continue;
+                }
+                if (++count > 15) { return Double.parseDouble(getString(slot)); }
+                digits = digits * 10 + (c - '0');
+                if (point) { scale++; }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return Double.parseDouble(getString(slot));
+            }
+        }
+        if (!any || scale > 22) { return Double.parseDouble(getString(slot)); }
+        double value = scale == 0 ? digits : digits / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    public String getString(int slot) {
+        return string(slot);
+    }
+
+    // splits the rows after the header into about n pieces, each starting at the beginning of a row - assumes no field
+    // has a newline inside it, which is true of every log CSV we've seen
+    public List<int[]> chunks(int n) {
+        List<int[]> chunks = new ArrayList<>();
+        int start = position;
+        for (int i = 1; i <= n && start < end; i++) {
+            int split = i == n ? end : Math.max(start, (int) (position + (long) (end - position) * i / n));
+            while (split < end && data.get(split - 1) != '\n') { split++; }
+            if (split > start) { chunks.add(new int[] { start, split }); }
+            start = split;
+        }
+        return chunks;
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) { POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10; }
+    }
+
+    // leaves position just past the field's delimiter
+    private void scanField(int slot) {
+        quoted[slot] = position < end && data.get(position) == '"';
+        if (quoted[slot]) {
+            int p = position + 1;
+            while (p < end) {
+                if (data.get(p) == '"') {
+                    if (p + 1 < end && data.get(p + 1) == '"') { p += 2; continue; }
+                    break;
+                }
+                p++;
+            }
+            starts[slot] = position + 1;
+            ends[slot] = Math.min(p, end);
+            position = p + 1;
+            skipField();
+            return;
+        }
+        starts[slot] = position;
+        skipField();
+        int e = position;
+        if (e > starts[slot] && (data.get(e - 1) == ',' || data.get(e - 1) == '\n')) { e--; }
+        if (e > starts[slot] && data.get(e - 1) == '\r') { e--; }
+        ends[slot] = e;
+    }
+
+    private void skipField() {
+        int p = position;
+        if (p < end && data.get(p) == '"') {
+            p++;
+            while (p < end) {
+                if (data.get(p) == '"') {
+                    if (p + 1 < end && data.get(p + 1) == '"') { p += 2; continue; }
+                    p++;
+                    break;
+                }
+                p++;
+            }
+        }
+        while (p < end) {
+            byte c = data.get(p++);
+            if (c == ',' || c == '\n') { break; }
+        }
+        position = p;
+    }
+
+    private String string(int slot) {
+        byte[] bytes = new byte[ends[slot] - starts[slot]];
+        data.get(starts[slot], bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        return quoted[slot] ? s.replace("\"\"", "\"") : s;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot >= starts.length) {
+            int capacity = Math.max(slot + 1, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            quoted = Arrays.copyOf(quoted, capacity);
+        }
+    }
+}
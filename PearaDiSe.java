@@ -1,100 +1,547 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import com.opencsv.CSVReader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import com.opencsv.CSVWriter;  
 
 public class PearaDiSe {
+    // Energy is integrated over the time between samples, from the "Time" column (in seconds).  This used to be a fixed
+    // kConv = 0.00000556 * 3.6 per sample - 20ms in hours, times 3.6 to get from Wh to kJ - which assumes the DS logged
+    // every 20ms without fail.  A CSV without a Time column still gets that fixed period.
+    static final double DEFAULT_PERIOD = 0.02;
+    // A gap longer than this (DS restarted, robot disconnected) isn't integrated across
+    static final double MAX_GAP = 1.0;
+    // Rows are parsed into blocks of this many before their energy is added up
+    static final int BATCH = 1024;
+    // The block row that holds Total PDP, after PDP 0 to 23
+    static final int TOTAL = 24;
+    // How many seconds before each brownout are profiled - "-window <seconds>" to change it
+    static final double DEFAULT_WINDOW = 2.0;
+    static double brownoutWindow = DEFAULT_WINDOW;
+
     public static void main(String[] args) {
         String fileName = "../dslogs/csvs/2024/2024_04_04 16_25_46 Thu.csv"; // <-- Change to use
+        // "-parallel" splits the CSV into chunks and adds them up on all cores - the sums can differ from a straight
+        // run in the last few digits, since floating point addition done in a different order rounds differently
+        boolean parallel = false;
+        String outputName = "output.csv";
+        String brownoutName = "brownouts.csv";
+        // or pass DS log CSVs on the command line - files, folders (every .csv in them) or patterns like "csvs/2024/*.csv"
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-parallel")) {
+                parallel = true;
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                outputName = args[++i];
+            } else if (args[i].equals("-brownouts") && i + 1 < args.length) {
+                brownoutName = args[++i];
+            } else if (args[i].equals("-window") && i + 1 < args.length) {
+                brownoutWindow = Double.parseDouble(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
         long time = System.currentTimeMillis();
         try {
-            CSVReader r = new CSVReader(new FileReader(fileName));
-            String[] nextLine = r.readNext();
+            List<String> files = paths.isEmpty() ? List.of(fileName) : findCsvs(paths);
+            if (files.isEmpty()) {
+                System.err.println("No CSVs found in " + paths);
+                return;
+            }
 
-            // creates a hashmap of indexes of the logs' columns (which column has what)
-            HashMap<String, Integer> columnIndexes = new HashMap<>();
-            for (int i = 0; i < nextLine.length; i++) { columnIndexes.put(nextLine[i], i); }
+            CSVWriter w = new CSVWriter(new FileWriter(outputName));
+            w.writeNext(headers()); // writes headers to first row of output
+            CSVWriter b = new CSVWriter(new FileWriter(brownoutName));
+            b.writeNext(brownoutHeaders());
 
-            final double kConv = 0.00000556 * 3.6; // pls explain what these constants mean
-            int brownOutCounter = 0, lineCounter = 0;
-            double totalPDP_sum = 0, kJ_first_brownout = 0;            
-            double[] PDP_sums = new double[24];
+            if (files.size() == 1) {
+                Sums sums = process(files.get(0), parallel);
+                for (int i = 0; i <= 23; i++) {
+                    System.out.println("PDP " + i + ": " + sums.PDP_sums[i] + " kJ");
+                }
+                w.writeNext(row(files.get(0), sums));
+                writeBrownouts(b, files.get(0), sums);
+
+                System.out.println("\nTotal PDP " + sums.totalPDP_sum + " kJ");
+                System.out.println("kJ @ 1st BO " + sums.kJ_first_brownout + " kJ");
+                System.out.println("Found " + sums.brownOutCounter + " brownouts");
+                for (int i = 0; i < sums.episodes.size(); i++) {
+                    System.out.println("  " + describe(i + 1, sums.episodes.get(i)));
+                }
+                
+                System.out.println("Checked " + sums.lineCounter + " lines");
+            } else {
+                int done = processAll(files, parallel, w, b);
+                System.out.println("Checked " + done + " of " + files.size() + " logs - one row per match in " + outputName);
+            }
+            System.out.println("Brownouts, and what drew the power in the " + brownoutWindow + "s before each, are in " + brownoutName);
+            System.out.println("Took " + ((System.currentTimeMillis() - time) / 1000.0) + "s");
             
-            while ((nextLine = r.readNext()) != null) { 
+            w.close();
+            b.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }        
+    }
+
+    // Adds up one DS log CSV - the whole file in one go, or split into chunks on every core
+    static Sums process(String fileName, boolean parallel) throws IOException {
+        CsvScanner r = CsvScanner.open(fileName);
+        String[] header = r.readHeader();
+
+        int[] columns = selectColumns(r);
+
+        List<Sums> chunks;
+        if (parallel) {
+            ByteBuffer data = CsvScanner.map(fileName);
+            chunks = r.chunks(Runtime.getRuntime().availableProcessors() * 4).parallelStream().map(chunk -> {
+                CsvScanner c = new CsvScanner(data, chunk[0], chunk[1]);
+                c.useHeader(header);
+                return new Sums().add(c, selectColumns(c));
+            }).collect(Collectors.toList());
+        } else {
+            chunks = List.of(new Sums().add(r, columns));
+        }
+        if (chunks.isEmpty()) { return new Sums(); }
+
+        Sums sums = chunks.get(0);
+        for (int i = 1; i < chunks.size(); i++) { sums.join(chunks.get(i)); }
+        return sums;
+    }
+
+    // A whole season's logs, a worker per core.  Each log's row goes into the output as soon as it and every log ahead of
+    // it are done, so the rows stay in file order and are there to look at while the rest are still going; a log that
+    // can't be read is reported and left out.  Returns how many made it.
+    static int processAll(List<String> files, boolean parallel, CSVWriter w, CSVWriter b) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<Sums>> results = new ArrayList<>();
+        for (String file : files) {
+            results.add(pool.submit(() -> process(file, parallel)));
+        }
+        pool.shutdown();
+
+        int done = 0;
+        for (int i = 0; i < files.size(); i++) {
+            String file = files.get(i);
+            try {
+                Sums sums = results.get(i).get();
+                w.writeNext(row(file, sums));
+                w.flush();
+                writeBrownouts(b, file, sums);
+                b.flush();
+                done++;
+                String match = matchName(file);
+                System.out.println((match.isEmpty() ? "" : match + ": ") + sums.totalPDP_sum + " kJ, " + sums.brownOutCounter + " brownouts (" + new File(file).getName() + ")");
+            } catch (ExecutionException e) {
+                System.err.println("Couldn't read " + file + ": " + e.getCause());
+            }
+        }
+        return done;
+    }
+
+    static String[] headers() {
+        String[] headers = new String[29];
+        headers[0] = "Match";
+        headers[1] = "Log";
+        headers[2] = "Total kJ";
+        headers[3] = "# of Brownouts";
+        headers[4] = "kJ @ 1st BO";
+
+        for (int i = 0; i <= 23; i++) { 
+            headers[i + 5] = "PDP " + String.valueOf(i); 
+        }
+        return headers;
+    }
+
+    static String[] row(String file, Sums sums) {
+        ArrayList<String> output = new ArrayList<>();
+        
+        output.add(matchName(file));
+        output.add(new File(file).getName());
+        output.add(String.valueOf(sums.totalPDP_sum));
+        output.add(String.valueOf(sums.brownOutCounter));
+        output.add(String.valueOf(sums.kJ_first_brownout));
+        
+        for (int i = 0; i <= 23; i++) {
+            output.add(String.valueOf(sums.PDP_sums[i]));
+        }
+        return Arrays.copyOf(output.toArray(), output.size(), String[].class);
+    }
+
+    static String[] brownoutHeaders() {
+        List<String> headers = new ArrayList<>(List.of("Match", "Log", "Brownout", "Start (s)", "Duration (s)", "Rows", "Min Voltage",
+            "Top Channel", "Top kJ", "Total PDP kJ", "Total PDP Peak A"));
+        for (int i = 0; i <= 23; i++) { headers.add("PDP " + i + " kJ"); }
+        for (int i = 0; i <= 23; i++) { headers.add("PDP " + i + " Peak A"); }
+        return headers.toArray(new String[0]);
+    }
+
+    // A row per brownout episode: when and how long, then the energy and peak current on each channel in the window before
+    static void writeBrownouts(CSVWriter b, String file, Sums sums) {
+        for (int e = 0; e < sums.episodes.size(); e++) {
+            Brownout episode = sums.episodes.get(e);
+            int top = episode.topChannel();
+            List<String> row = new ArrayList<>();
+            row.add(matchName(file));
+            row.add(new File(file).getName());
+            row.add(String.valueOf(e + 1));
+            row.add(String.valueOf(episode.start));
+            row.add(String.valueOf(episode.end - episode.start));
+            row.add(String.valueOf(episode.rows));
+            row.add(episode.minVoltage == Double.MAX_VALUE ? "" : String.valueOf(episode.minVoltage));
+            row.add(top < 0 ? "" : "PDP " + top);
+            row.add(top < 0 ? "" : String.valueOf(episode.energy[top]));
+            row.add(String.valueOf(episode.energy[TOTAL]));
+            row.add(String.valueOf(episode.peak[TOTAL]));
+            for (int i = 0; i <= 23; i++) { row.add(String.valueOf(episode.energy[i])); }
+            for (int i = 0; i <= 23; i++) { row.add(String.valueOf(episode.peak[i])); }
+            b.writeNext(row.toArray(new String[0]));
+        }
+    }
+
+    static String describe(int number, Brownout episode) {
+        int top = episode.topChannel();
+        String line = "Brownout " + number + " at " + episode.start + "s for " + String.format("%.2f", episode.end - episode.start) + "s";
+        if (top < 0) { return line + " - nothing logged in the " + brownoutWindow + "s before"; }
+        return line + " - PDP " + top + " drew the most in the " + brownoutWindow + "s before: " + String.format("%.3f", episode.energy[top])
+            + " kJ, peak " + String.format("%.1f", episode.peak[top]) + " A";
+    }
+
+    // The CSVs named by the command line, in order - a folder stands for every .csv in it, and a name with * or ? in it
+    // for every file in its folder that matches
+    static List<String> findCsvs(List<String> paths) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                addMatching(files, file.toPath(), "*.csv");
+            } else if (path.contains("*") || path.contains("?")) {
+                Path parent = file.getParentFile() != null ? file.getParentFile().toPath() : Paths.get(".");
+                addMatching(files, parent, file.getName());
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private static void addMatching(List<String> files, Path folder, String glob) throws IOException {
+        List<String> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) { found.add(path.toString()); }
+            }
+        }
+        Collections.sort(found);
+        files.addAll(found);
+    }
+
+    // resolves the columns once rather than looking each one up by name on every row - Brownout, Voltage, Total PDP,
+    // PDP 0 to 23, then Time (-1 if there isn't one)
+    static int[] selectColumns(CsvScanner r) {
+        int[] columns = new int[28];
+        columns[0] = r.select("Brownout");
+        columns[1] = r.select("Voltage");
+        columns[2] = r.select("Total PDP");
+        for (int i = 0; i <= 23; i++) { columns[i + 3] = r.select("PDP " + String.valueOf(i)); }
+        columns[27] = r.has("Time") ? r.select("Time") : -1;
+        return columns;
+    }
+
+    // the totals for one run of rows - the whole file, or one chunk of it.  Rows are parsed into a block at a time, a
+    // column of currents per channel, and each channel's energy is added up over the block as one tight loop - power is
+    // current times voltage, and each pair of neighbouring rows adds the average of their power times the time between
+    // them (the trapezoid rule).  Loops like these over plain arrays are what the JIT turns into SIMD instructions.
+    //
+    // Runs of brownout rows are gathered into episodes as the rows go by.  The last few seconds of rows are kept in a
+    // fixed-size ring (see Recent), so when an episode starts, what each channel drew in the window before it can be
+    // worked out there and then - however long the log, nothing more than the ring is held.
+    static class Sums {
+        int brownOutCounter = 0, lineCounter = 0;
+        double totalPDP_sum = 0, kJ_first_brownout = 0;
+        double[] PDP_sums = new double[24];
+
+        // the first and last rows integrated, so a chunk can be joined to the next with the interval between them
+        int samples = 0;
+        boolean timed = true;
+        double firstTime, lastTime;
+        double[] firstPower = new double[25], lastPower = new double[25];
+
+        final Recent recent = new Recent(brownoutWindow);
+        final List<Brownout> episodes = new ArrayList<>();
+        Brownout open = null;   // the episode the last row was part of, if it was a brownout
+
+        // the block being filled - currents by channel (Total PDP last), with each row's voltage and time
+        private final double[][] current = new double[25][BATCH];
+        private final double[] voltage = new double[BATCH], time = new double[BATCH];
+        private final double[] power = new double[BATCH], weight = new double[BATCH];
+
+        Sums add(CsvScanner r, int[] columns) {
+            timed = columns[27] >= 0;
+            int n = 0, firstBrownout = -1;
+            while (r.next()) { 
                 lineCounter++;
 
-                if (nextLine[columnIndexes.get("Brownout")].equals("True")) {
+                boolean brownout = r.is(columns[0], "True");
+                if (brownout) {
                     brownOutCounter++;
                 }
                 
-                double voltage = Double.parseDouble(nextLine[columnIndexes.get("Voltage")]);                
-                if (voltage < 30) {
-                    totalPDP_sum += Double.parseDouble(nextLine[columnIndexes.get("Total PDP")]) 
-                    * voltage
-                    * kConv;
-                    
+                double t = timed ? r.getDouble(columns[27]) : lineCounter * DEFAULT_PERIOD;
+                double v = r.getDouble(columns[1]);
+                if (v < 30) {
+                    voltage[n] = v;
+                    time[n] = t;
+                    current[TOTAL][n] = r.getDouble(columns[2]);
                     for (int i = 0; i <= 23; i++) {
-                        PDP_sums[i] += Double.parseDouble(nextLine[
-                            columnIndexes.get("PDP " + String.valueOf(i))]) 
-                            * voltage
-                            * kConv;
+                        current[i][n] = r.getDouble(columns[i + 3]);
                     }
+                    recent.add(t, v, current, n);
+                    n++;
+                }
+
+                if (brownout) {
+                    if (open == null) {
+                        open = new Brownout(t, lineCounter == 1);
+                        recent.profile(open.windowFrom, t, open);
+                        episodes.add(open);
+                    }
+                    open.end = t;
+                    open.rows++;
+                    if (v < 30) { open.minVoltage = Math.min(open.minVoltage, v); }
+                } else {
+                    open = null;
+                }
+
+                if (brownout && brownOutCounter == 1) {
+                    // kJ at the first brownout counts the rows in the block up to and including this one
+                    firstBrownout = n;
+                }
+                if (n == BATCH) {
+                    integrate(n, firstBrownout);
+                    n = 0;
+                    firstBrownout = -1;
+                }
+            }
+            integrate(n, firstBrownout);
+            return this;
+        }
+
+        // adds up the block's n rows; firstBrownout is how many of them come before the first brownout, or -1 if it's
+        // not in this block
+        private void integrate(int n, int firstBrownout) {
+            double before = totalPDP_sum;
+            // half of each interval (the trapezoid's average), in thousands of seconds so watts come out as kJ
+            for (int k = 0; k < n; k++) {
+                double dt = k > 0 ? interval(time[k - 1], time[k]) : (samples > 0 ? interval(lastTime, time[0]) : 0);
+                weight[k] = dt / 2000;
+            }
+
+            for (int ch = 0; ch <= TOTAL; ch++) {
+                double[] c = current[ch];
+                for (int k = 0; k < n; k++) {
+                    power[k] = c[k] * voltage[k];
+                }
+                double sum = n > 0 ? (lastPower[ch] + power[0]) * weight[0] : 0;
+                for (int k = 1; k < n; k++) {
+                    sum += (power[k - 1] + power[k]) * weight[k];
                 }
 
-                if (brownOutCounter == 0) { 
-                    // updates until brownout counter > 0
-                    kJ_first_brownout = totalPDP_sum;
+                if (ch == TOTAL) {
+                    totalPDP_sum += sum;
+                    if (firstBrownout >= 0) {
+                        double upTo = firstBrownout > 0 ? (lastPower[ch] + power[0]) * weight[0] : 0;
+                        for (int k = 1; k < firstBrownout; k++) {
+                            upTo += (power[k - 1] + power[k]) * weight[k];
+                        }
+                        kJ_first_brownout = before + upTo;
+                    }
+                } else {
+                    PDP_sums[ch] += sum;
+                }
+                if (n > 0) {
+                    if (samples == 0) { firstPower[ch] = power[0]; }
+                    lastPower[ch] = power[n - 1];
                 }
             }
 
-            // first line of output, headers of columns
-            String[] headers = new String[27];
-            headers[0] = "Total kJ";
-            headers[1] = "# of Brownouts";
-            headers[2] = "kJ @ 1st BO";
+            if (n > 0) {
+                if (samples == 0) { firstTime = time[0]; }
+                lastTime = time[n - 1];
+                samples += n;
+            }
+            if (brownOutCounter == 0) { 
+                // updates until brownout counter > 0
+                kJ_first_brownout = totalPDP_sum;
+            }
+        }
 
-            for (int i = 0; i <= 23; i++) { 
-                headers[i + 3] = "PDP " + String.valueOf(i); 
+        // adds the totals for the rows straight after these - including the interval between the two runs
+        void join(Sums next) {
+            double[] between = new double[25];
+            if (samples > 0 && next.samples > 0) {
+                double dt = timed ? interval(lastTime, next.firstTime) : DEFAULT_PERIOD;
+                for (int ch = 0; ch <= TOTAL; ch++) { between[ch] = (lastPower[ch] + next.firstPower[ch]) * dt / 2000; }
             }
-            
-            ArrayList<String> output = new ArrayList<>();
-            
-            output.add(String.valueOf(totalPDP_sum));
-            output.add(String.valueOf(brownOutCounter));
-            output.add(String.valueOf(kJ_first_brownout));
-            
-            for (int i = 0; i <= 23; i++) {
-                System.out.println("PDP " + i + ": " + PDP_sums[i] + " kJ");
-                output.add(String.valueOf(PDP_sums[i]));
+
+            // kJ at the first brownout isn't a plain sum - it's everything before the first chunk with a brownout,
+            // plus that chunk's own total up to its first brownout
+            if (brownOutCounter == 0) {
+                kJ_first_brownout = totalPDP_sum + between[TOTAL] + next.kJ_first_brownout;
             }
 
-            CSVWriter w = new CSVWriter(new FileWriter("output.csv"));
-            w.writeNext(headers); // writes headers to first row of output
-            w.writeNext(Arrays.copyOf(output.toArray(), output.size(), String[].class));
-            
-            System.out.println("\nTotal PDP " + totalPDP_sum + " kJ");
-            System.out.println("kJ @ 1st BO " + kJ_first_brownout + " kJ");
-            System.out.println("Found " + brownOutCounter + " brownouts");
-            
-            System.out.println("Checked " + lineCounter + " lines");
-            System.out.println("Took " + ((System.currentTimeMillis() - time) / 1000.0) + "s");
-            
-            r.close();
-            w.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }        
+            // without a Time column each chunk's times start from zero, so the next chunk's are moved along to follow ours
+            double shift = timed ? 0 : lineCounter * DEFAULT_PERIOD;
+            for (int e = 0; e < next.episodes.size(); e++) {
+                Brownout episode = next.episodes.get(e);
+                episode.shift(shift);
+                // an episode near the start of the next chunk has a window reaching back into this one - the rows for that
+                // are still in our ring
+                if (next.samples > 0 && episode.windowFrom < next.firstTime + shift) {
+                    recent.profile(episode.windowFrom, Math.min(episode.start, next.firstTime + shift), episode);
+                    if (samples > 0 && lastTime >= episode.windowFrom && next.firstTime + shift <= episode.start) {
+                        for (int ch = 0; ch <= TOTAL; ch++) { episode.energy[ch] += between[ch]; }
+                    }
+                }
+            }
+            // a brownout that runs from the end of this chunk into the next is one episode, not two
+            List<Brownout> added = next.episodes;
+            if (open != null && !added.isEmpty() && added.get(0).atChunkStart) {
+                Brownout carried = added.get(0);
+                open.end = carried.end;
+                open.rows += carried.rows;
+                open.minVoltage = Math.min(open.minVoltage, carried.minVoltage);
+                added = added.subList(1, added.size());
+            }
+            episodes.addAll(added);
+            if (next.lineCounter > 0) {
+                open = next.open == null ? null : (episodes.isEmpty() ? null : episodes.get(episodes.size() - 1));
+            }
+            recent.addAll(next.recent, shift);
+            lineCounter += next.lineCounter;
+            brownOutCounter += next.brownOutCounter;
+            totalPDP_sum += between[TOTAL] + next.totalPDP_sum;
+            for (int i = 0; i <= 23; i++) { PDP_sums[i] += between[i] + next.PDP_sums[i]; }
+
+            if (next.samples > 0) {
+                if (samples == 0) {
+                    firstTime = next.firstTime + shift;
+                    firstPower = next.firstPower;
+                }
+                lastTime = next.lastTime + shift;
+                lastPower = next.lastPower;
+                samples += next.samples;
+            }
+        }
+
+        // the time between two samples, or 0 if they're out of order or too far apart to integrate across
+        private static double interval(double from, double to) {
+            double dt = to - from;
+            return dt > 0 && dt <= MAX_GAP ? dt : 0;
+        }
     }
 
-    public static String trim(String s) {
-        if (s.lastIndexOf("q") != -1) {
-            return s.substring(s.lastIndexOf("q"));
-        } else if (s.lastIndexOf("e") != -1) {
-            return s.substring(s.lastIndexOf("e"));
-        } else if (s.lastIndexOf("/") != -1) {
-            return s.substring(s.lastIndexOf("/") + 1);
-        } else {
-            return s;
+    // The last few seconds of rows, in a ring that's written over oldest first.  It holds twice as many rows as the
+    // brownout window does at the usual logging rate, and never grows.
+    static class Recent {
+        final int capacity;
+        final double[] time, voltage;
+        final double[][] current;
+        int head = 0, size = 0;   // head is where the next row goes
+
+        Recent(double window) {
+            capacity = Math.max(2, (int) Math.ceil(window / DEFAULT_PERIOD) * 2);
+            time = new double[capacity];
+            voltage = new double[capacity];
+            current = new double[25][capacity];
+        }
+
+        // row k of a block of currents by channel
+        void add(double t, double v, double[][] block, int k) {
+            time[head] = t;
+            voltage[head] = v;
+            for (int ch = 0; ch <= TOTAL; ch++) { current[ch][head] = block[ch][k]; }
+            head = (head + 1) % capacity;
+            if (size < capacity) { size++; }
+        }
+
+        // the rows of a ring for the rows straight after ours, their times moved along by shift
+        void addAll(Recent next, double shift) {
+            for (int j = 0; j < next.size; j++) {
+                int i = (next.head - next.size + j + next.capacity) % next.capacity;
+                add(next.time[i] + shift, next.voltage[i], next.current, i);
+            }
+        }
+
+        // adds the energy (trapezoid rule, as in Sums) and peak current on each channel over the rows timed from..to
+        void profile(double from, double to, Brownout episode) {
+            int previous = -1;
+            for (int j = 0; j < size; j++) {
+                int i = (head - size + j + capacity) % capacity;
+                // a microsecond either way, so a row right on the edge of the window isn't lost to rounding
+                if (time[i] < from - 1e-6) { continue; }
+                if (time[i] > to + 1e-6) { break; }
+                double dt = previous >= 0 ? Sums.interval(time[previous], time[i]) : 0;
+                for (int ch = 0; ch <= TOTAL; ch++) {
+                    if (dt > 0) {
+                        episode.energy[ch] += (current[ch][previous] * voltage[previous] + current[ch][i] * voltage[i]) * dt / 2000;
+                    }
+                    episode.peak[ch] = Math.max(episode.peak[ch], current[ch][i]);
+                }
+                previous = i;
+            }
         }
     }
+
+    // One run of brownout rows back to back, and what each channel drew in the window before it began
+    static class Brownout {
+        double start, end, windowFrom;
+        int rows = 0;
+        double minVoltage = Double.MAX_VALUE;
+        final double[] energy = new double[25], peak = new double[25];   // kJ and A by channel, Total PDP last
+        final boolean atChunkStart;   // began on the first row read, so it may carry on a brownout from the rows before
+
+        Brownout(double start, boolean atChunkStart) {
+            this.start = start;
+            this.end = start;
+            this.windowFrom = start - brownoutWindow;
+            this.atChunkStart = atChunkStart;
+        }
+
+        void shift(double by) {
+            start += by;
+            end += by;
+            windowFrom += by;
+        }
+
+        // the PDP channel that drew the most energy in the window, or -1 if none drew any
+        int topChannel() {
+            int top = -1;
+            for (int i = 0; i <= 23; i++) {
+                if (energy[i] > 0 && (top < 0 || energy[i] > energy[top])) { top = i; }
+            }
+            return top;
+        }
+    }
+
+    // The match a log is from, as it's written in the file name - "q12" in "2024_04_04 16_25_46 Thu q12.csv" - or ""
+    // if the name doesn't say.  Takes the last qualification (q, qm), playoff (sf, f, e) or practice (p) number in the name.
+    public static String matchName(String path) {
+        Matcher m = MATCH_NAME.matcher(new File(path).getName().replaceFirst("\\.[^.]*$", ""));
+        String match = "";
+        while (m.find()) { match = m.group(1); }
+        return match;
+    }
+
+    private static final Pattern MATCH_NAME = Pattern.compile("(?i)(?<![a-z0-9])((?:qm|q|sf|f|e|p)\\d+)(?![a-z0-9])");
 }
\ No newline at end of file
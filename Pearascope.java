@@ -1,103 +1,420 @@
-import java.io.*;
-import java.util.*;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;  
-
-public class Pearascope {
-    public static void main(String[] args) {
-        String fileName = "Log_24-09-07_14-03-27_q6.csv"; // <-- Change to use
-        long time = System.currentTimeMillis();
-        try {
-            CSVReader r = new CSVReader(new FileReader("../2024RemixLogs/raw_csvs/" + fileName));
-            String[] nextLine = r.readNext();
-
-            // creates a hashmap of indexes of the logs' columns (which column has what)
-            HashMap<String, Integer> columnIndexes = new HashMap<>();
-            for (int i = 0; i < nextLine.length; i++) { columnIndexes.put(nextLine[i], i); }
-            
-            // first line of output, headers of columns
-            String[] headers = { "Intook Time", "Intook Pose X", "Intook Pose Y", "Intook Pose θ", 
-                    "Shot Time", "Shot X", "Shot Y", "Shot θ", 
-                    "Autonomous/Teleop", "Speaker/Amp",
-                    "Pivot Intended Position", "Pivot Actual Position",
-                    "Left Shooter RPM", "Right Shooter RPM",
-                    "Match Number", "Alliance", 
-                    "Battery Voltage", "Shooter Pivot Adj",
-                    // "Limelight Ambiguity",
-                    "Brownout Counter",
-            };
-            
-            CSVWriter w = new CSVWriter(new FileWriter("../2024RemixLogs/shot_tables/" + trim(fileName)));
-            w.writeNext(headers); // writes headers to first row of output
-            
-            ArrayList<String> output = new ArrayList<>();
-            for (int i = 0; i < 4; i++) { output.add("PRELOAD"); }
-
-            boolean hasNote = true; // starts with preload
-            int brownOutCounter = 0;
-
-            while ((nextLine = r.readNext()) != null) { // reads next line until it runs out of rows in logs
-                // if in match and whether the robot has a note changes
-                if (Integer.parseInt(nextLine[columnIndexes.get("/DriverStation/MatchTime")]) > 0 
-                    && nextLine[columnIndexes.get("/DriverStation/Enabled")].equals("true")) {
-                    if (nextLine[columnIndexes.get("/RealOutputs/Transport/Ir Sensor")].equals("true") != hasNote) {
-                        hasNote = !hasNote; // updates local variable
-
-                        // logs time and pose when robot intakes or shoots
-                        output.add(nextLine[columnIndexes.get("/DriverStation/MatchTime")]);
-                        output.add(nextLine[columnIndexes.get("/RealOutputs/Drivetrain/Odometry/translation/x")]);
-                        output.add(nextLine[columnIndexes.get("/RealOutputs/Drivetrain/Odometry/translation/y")]);
-                        output.add(nextLine[columnIndexes.get("/RealOutputs/Drivetrain/Odometry/rotation/value")]);
-                        
-                        if (!hasNote) { // logs these when the robot shoots and no longer has a note
-                            output.add(nextLine[columnIndexes.get("/DriverStation/Autonomous")]
-                            .equals("true") ? "Autonomous" : "Teleop");
-                            // beta amp pos goes from -20 to 0
-                            output.add(Double.parseDouble(nextLine[columnIndexes.get
-                                ("/RealOutputs/Amp Bar/Amp Bar Position")]) > -5 ? "Amp" : "Speaker"); 
-                            output.add(nextLine[columnIndexes.get("/RealOutputs/Shooter/Shooter Pivot Intended Position")]);
-                            output.add(nextLine[columnIndexes.get("/RealOutputs/Shooter/Shooter Pivot Position")]);
-                            output.add(nextLine[columnIndexes.get("/RealOutputs/Shooter/Left Shooter Speed")]);
-                            output.add(nextLine[columnIndexes.get("/RealOutputs/Shooter/Right Shooter Speed")]);
-                            // output.add("?");
-                            // output.add("?");
-                            output.add(nextLine[columnIndexes.get("/DriverStation/MatchNumber")]);
-                            output.add(Integer.parseInt(nextLine[columnIndexes.get
-                                ("/DriverStation/AllianceStation")]) <= 3 ? "Red" : "Blue");
-                            output.add(nextLine[columnIndexes.get("/SystemStats/BatteryVoltage")]);                            
-                            output.add(nextLine[columnIndexes.get("/RealOutputs/Shooter/Shooter Pivot Adjust")]);                            
-                            // output.add(nextLine[columnIndexes.get("/RealOutputs/Limelight/Single Tag Ambiguity")]);
-                            output.add(String.valueOf(brownOutCounter));
-
-                            // converts output to String[] and writes it to output
-                            w.writeNext(Arrays.copyOf(output.toArray(), output.size(), String[].class));
-                            output = new ArrayList<>(); // clears variable for new line
-                        }
-                    }
-                    if (nextLine[columnIndexes.get("/SystemStats/BrownedOut")].equals("true")) {
-                        brownOutCounter++;
-                    }
-                }
-            }
-            
-            r.close();
-            w.close();
-            
-            System.out.println("Done! Check " + trim(fileName));
-            System.out.println("Took " + ((System.currentTimeMillis() - time) / 1000.0) + "s");
-            System.out.println("Found " + brownOutCounter + " brownouts");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }        
-    }
-    public static String trim(String s) {
-        char[] delimiters = { 'q', 'e', 'p', '/' };
-        for (char c : delimiters) {
-            if (s.lastIndexOf(c) != -1) {
-                if (c == '/') { return s.substring(s.lastIndexOf('/') + 1); }
-                return s.substring(s.lastIndexOf(c));
-            }
-        }
-        return s;
-    }
-}
\ No newline at end of file
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.opencsv.CSVWriter;
+import com.WPILogParser.StructLayout;
+import com.WPILogParser.StructRegistry;
+import com.WPILogParser.WPILogFile;
+import com.WPILogParser.WPILogRecord;
+
+public class Pearascope {
+    // first line of output, headers of columns
+    static final String[] HEADERS = { "Intook Time", "Intook Pose X", "Intook Pose Y", "Intook Pose θ",
+            "Shot Time", "Shot X", "Shot Y", "Shot θ",
+            "Autonomous/Teleop", "Speaker/Amp",
+            "Pivot Intended Position", "Pivot Actual Position",
+            "Left Shooter RPM", "Right Shooter RPM",
+            "Match Number", "Alliance",
+            "Battery Voltage", "Shooter Pivot Adj",
+            // "Limelight Ambiguity",
+            "Brownout Counter",
+    };
+    static final String MERGED_NAME = "all_shots.csv";
+
+    public static void main(String[] args) {
+        String fileName = "Log_24-09-07_14-03-27_q6.csv"; // <-- Change to use
+        String outputFolder = "../2024RemixLogs/shot_tables/";
+        // or pass logs on the command line - a .wpilog straight off the robot works as well as an AdvantageScope CSV
+        // export, and a folder stands for every log in it
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputFolder = args[++i];
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        long time = System.currentTimeMillis();
+        try {
+            List<String> files = paths.isEmpty() ? List.of("../2024RemixLogs/raw_csvs/" + fileName) : findLogs(paths);
+            if (files.isEmpty()) {
+                System.err.println("No logs found in " + paths);
+                return;
+            }
+            List<String> outputNames = outputNames(files);
+
+            if (files.size() == 1) {
+                Shots shots = readShots(files.get(0));
+                write(new File(outputFolder, outputNames.get(0)), HEADERS, shots.rows);
+
+                System.out.println("Done! Check " + outputNames.get(0));
+                System.out.println("Took " + ((System.currentTimeMillis() - time) / 1000.0) + "s");
+                System.out.println("Found " + shots.brownOutCounter + " brownouts");
+            } else {
+                int done = readAll(files, outputNames, outputFolder);
+                System.out.println("Done! " + done + " of " + files.size() + " logs - every shot is in " + MERGED_NAME + " as well");
+                System.out.println("Took " + ((System.currentTimeMillis() - time) / 1000.0) + "s");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The shot table for one log, and the brownouts seen while it was read
+    static class Shots {
+        final List<String[]> rows = new ArrayList<>();
+        int brownOutCounter;
+    }
+
+    static Shots readShots(String path) throws IOException {
+        Shots shots = new Shots();
+        if (path.endsWith(".wpilog")) {
+            try (WPILogFile log = new WPILogFile(path)) {
+                if (!log.isValid()) { throw new IOException(path + " is not a wpilog"); }
+                shots.brownOutCounter = readShots(log, shots.rows);
+            }
+        } else {
+            shots.brownOutCounter = readShots(CsvScanner.open(path), shots.rows);
+        }
+        return shots;
+    }
+
+    // Reads every log on a worker per core, writing each one's shot table as it finishes.  The merged table - every shot,
+    // each with the match and log it came from, ready for fitting the shooter map - is written in file order as each log
+    // and all those ahead of it are done.  A log that can't be read is reported and left out.  Returns how many made it.
+    static int readAll(List<String> files, List<String> outputNames, String outputFolder) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<Shots>> results = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            String file = files.get(i);
+            File output = new File(outputFolder, outputNames.get(i));
+            results.add(pool.submit(() -> {
+                Shots shots = readShots(file);
+                write(output, HEADERS, shots.rows);
+                return shots;
+            }));
+        }
+        pool.shutdown();
+
+        String[] mergedHeaders = new String[HEADERS.length + 2];
+        mergedHeaders[0] = "Match";
+        mergedHeaders[1] = "Log";
+        System.arraycopy(HEADERS, 0, mergedHeaders, 2, HEADERS.length);
+        int done = 0;
+        try (CSVWriter merged = new CSVWriter(new FileWriter(new File(outputFolder, MERGED_NAME)))) {
+            merged.writeNext(mergedHeaders);
+            for (int i = 0; i < files.size(); i++) {
+                String file = files.get(i);
+                String match = matchName(file);
+                try {
+                    Shots shots = results.get(i).get();
+                    for (String[] row : shots.rows) {
+                        String[] line = new String[row.length + 2];
+                        line[0] = match;
+                        line[1] = new File(file).getName();
+                        System.arraycopy(row, 0, line, 2, row.length);
+                        merged.writeNext(line);
+                    }
+                    merged.flush();
+                    done++;
+                    System.out.println(outputNames.get(i) + ": " + shots.rows.size() + " shots, " + shots.brownOutCounter + " brownouts (" + new File(file).getName() + ")");
+                } catch (ExecutionException e) {
+                    System.err.println("Couldn't read " + file + ": " + e.getCause());
+                }
+            }
+        }
+        return done;
+    }
+
+    static void write(File file, String[] headers, List<String[]> rows) throws IOException {
+        try (CSVWriter w = new CSVWriter(new FileWriter(file))) {
+            w.writeNext(headers); // writes headers to first row of output
+            for (String[] row : rows) { w.writeNext(row); }
+        }
+    }
+
+    // Adds a row per shot from an AdvantageScope CSV export; returns the brownout count
+    static int readShots(CsvScanner r, List<String[]> rows) {
+        r.readHeader();
+
+        // resolves the columns we need once - the other few hundred columns are skipped without being parsed
+        final int matchTime = r.select("/DriverStation/MatchTime");
+        final int enabled = r.select("/DriverStation/Enabled");
+        final int irSensor = r.select("/RealOutputs/Transport/Ir Sensor");
+        final int poseX = r.select("/RealOutputs/Drivetrain/Odometry/translation/x");
+        final int poseY = r.select("/RealOutputs/Drivetrain/Odometry/translation/y");
+        final int poseTheta = r.select("/RealOutputs/Drivetrain/Odometry/rotation/value");
+        final int autonomous = r.select("/DriverStation/Autonomous");
+        final int ampBar = r.select("/RealOutputs/Amp Bar/Amp Bar Position");
+        final int pivotIntended = r.select("/RealOutputs/Shooter/Shooter Pivot Intended Position");
+        final int pivotActual = r.select("/RealOutputs/Shooter/Shooter Pivot Position");
+        final int leftShooter = r.select("/RealOutputs/Shooter/Left Shooter Speed");
+        final int rightShooter = r.select("/RealOutputs/Shooter/Right Shooter Speed");
+        final int matchNumber = r.select("/DriverStation/MatchNumber");
+        final int allianceStation = r.select("/DriverStation/AllianceStation");
+        final int batteryVoltage = r.select("/SystemStats/BatteryVoltage");
+        final int pivotAdjust = r.select("/RealOutputs/Shooter/Shooter Pivot Adjust");
+        // final int ambiguity = r.select("/RealOutputs/Limelight/Single Tag Ambiguity");
+        final int brownedOut = r.select("/SystemStats/BrownedOut");
+
+        ArrayList<String> output = new ArrayList<>();
+        for (int i = 0; i < 4; i++) { output.add("PRELOAD"); }
+
+        boolean hasNote = true; // starts with preload
+        int brownOutCounter = 0;
+
+        while (r.next()) { // reads next line until it runs out of rows in logs
+            // if in match and whether the robot has a note changes
+            if (r.getInt(matchTime) > 0 && r.is(enabled, "true")) {
+                if (r.is(irSensor, "true") != hasNote) {
+                    hasNote = !hasNote; // updates local variable
+
+                    // logs time and pose when robot intakes or shoots
+                    output.add(r.getString(matchTime));
+                    output.add(r.getString(poseX));
+                    output.add(r.getString(poseY));
+                    output.add(r.getString(poseTheta));
+
+                    if (!hasNote) { // logs these when the robot shoots and no longer has a note
+                        output.add(r.is(autonomous, "true") ? "Autonomous" : "Teleop");
+                        // beta amp pos goes from -20 to 0
+                        output.add(r.getDouble(ampBar) > -5 ? "Amp" : "Speaker");
+                        output.add(r.getString(pivotIntended));
+                        output.add(r.getString(pivotActual));
+                        output.add(r.getString(leftShooter));
+                        output.add(r.getString(rightShooter));
+                        // output.add("?");
+                        // output.add("?");
+                        output.add(r.getString(matchNumber));
+                        output.add(r.getInt(allianceStation) <= 3 ? "Red" : "Blue");
+                        output.add(r.getString(batteryVoltage));
+                        output.add(r.getString(pivotAdjust));
+                        // output.add(r.getString(ambiguity));
+                        output.add(String.valueOf(brownOutCounter));
+
+                        // converts output to String[] and adds it to the table
+                        rows.add(Arrays.copyOf(output.toArray(), output.size(), String[].class));
+                        output = new ArrayList<>(); // clears variable for new line
+                    }
+                }
+                if (r.is(brownedOut, "true")) {
+                    brownOutCounter++;
+                }
+            }
+        }
+        return brownOutCounter;
+    }
+
+    // The values readShots(WPILogFile) keeps, by slot
+    static final int MATCH_TIME = 0, ENABLED = 1, IR_SENSOR = 2, POSE_X = 3, POSE_Y = 4, POSE_THETA = 5, AUTONOMOUS = 6,
+            AMP_BAR = 7, PIVOT_INTENDED = 8, PIVOT_ACTUAL = 9, LEFT_SHOOTER = 10, RIGHT_SHOOTER = 11, MATCH_NUMBER = 12,
+            ALLIANCE_STATION = 13, BATTERY_VOLTAGE = 14, PIVOT_ADJUST = 15, BROWNED_OUT = 16, SLOTS = 17;
+    static final String[] ENTRIES = { "/DriverStation/MatchTime", "/DriverStation/Enabled", "/RealOutputs/Transport/Ir Sensor",
+            null, null, null, "/DriverStation/Autonomous", "/RealOutputs/Amp Bar/Amp Bar Position",
+            "/RealOutputs/Shooter/Shooter Pivot Intended Position", "/RealOutputs/Shooter/Shooter Pivot Position",
+            "/RealOutputs/Shooter/Left Shooter Speed", "/RealOutputs/Shooter/Right Shooter Speed", "/DriverStation/MatchNumber",
+            "/DriverStation/AllianceStation", "/SystemStats/BatteryVoltage", "/RealOutputs/Shooter/Shooter Pivot Adjust",
+            "/SystemStats/BrownedOut" };
+    // a Pose2d struct, or the older double[] {x, y, θ}, filling POSE_X to POSE_THETA
+    static final String POSE_ENTRY = "/RealOutputs/Drivetrain/Odometry";
+    static final int POSE = -2, NOT_USED = -1;
+
+    // Adds the same rows as readShots(CsvScanner), straight from the robot's .wpilog.  The CSV export has a row for every
+    // timestamp in the log with every column carried forward from its last value, so here we carry forward just the values
+    // we use and look at each timestamp once all of its records are in - the checks see exactly what they'd see in the CSV,
+    // without a row ever being built.  Records for any other entry cost an array lookup.  Returns the brownout count.
+    static int readShots(WPILogFile log, List<String[]> rows) {
+        double[] values = new double[SLOTS];
+        boolean[] seen = new boolean[SLOTS];
+        boolean[] integral = new boolean[SLOTS];   // logged as int64, so written without a decimal point
+        int[] slotOf = new int[256];               // entry ID -> slot, NOT_USED or POSE
+        Arrays.fill(slotOf, NOT_USED);
+        WPILogRecord.StartRecordData[] entries = new WPILogRecord.StartRecordData[256];
+        StructRegistry structs = new StructRegistry();
+        StructLayout pose = null;
+        int[] poseFields = null;
+
+        ArrayList<String> output = new ArrayList<>();
+        for (int i = 0; i < 4; i++) { output.add("PRELOAD"); }
+
+        boolean hasNote = true; // starts with preload
+        int brownOutCounter = 0;
+        long rowTime = -1;
+
+        Iterator<WPILogRecord> records = log.iterator();
+        while (true) {
+            WPILogRecord record = (records.hasNext() ? records.next() : null);
+            boolean control = (record != null && record.isControl());
+
+            // a new timestamp means the last one's row is complete
+            if (rowTime >= 0 && (record == null || (!control && record.getTimestamp() != rowTime))) {
+                // if in match and whether the robot has a note changes
+                if ((int) values[MATCH_TIME] > 0 && values[ENABLED] != 0) {
+                    if ((values[IR_SENSOR] != 0) != hasNote) {
+                        hasNote = !hasNote; // updates local variable
+
+                        // logs time and pose when robot intakes or shoots
+                        output.add(format(values, seen, integral, MATCH_TIME));
+                        output.add(format(values, seen, integral, POSE_X));
+                        output.add(format(values, seen, integral, POSE_Y));
+                        output.add(format(values, seen, integral, POSE_THETA));
+
+                        if (!hasNote) { // logs these when the robot shoots and no longer has a note
+                            output.add(values[AUTONOMOUS] != 0 ? "Autonomous" : "Teleop");
+                            // beta amp pos goes from -20 to 0
+                            output.add(values[AMP_BAR] > -5 ? "Amp" : "Speaker");
+                            output.add(format(values, seen, integral, PIVOT_INTENDED));
+                            output.add(format(values, seen, integral, PIVOT_ACTUAL));
+                            output.add(format(values, seen, integral, LEFT_SHOOTER));
+                            output.add(format(values, seen, integral, RIGHT_SHOOTER));
+                            output.add(format(values, seen, integral, MATCH_NUMBER));
+                            output.add((int) values[ALLIANCE_STATION] <= 3 ? "Red" : "Blue");
+                            output.add(format(values, seen, integral, BATTERY_VOLTAGE));
+                            output.add(format(values, seen, integral, PIVOT_ADJUST));
+                            output.add(String.valueOf(brownOutCounter));
+
+                            rows.add(Arrays.copyOf(output.toArray(), output.size(), String[].class));
+                            output = new ArrayList<>(); // clears variable for new line
+                        }
+                    }
+                    if (values[BROWNED_OUT] != 0) {
+                        brownOutCounter++;
+                    }
+                }
+            }
+            if (record == null) { break; }
+
+            if (record.isStart()) {
+                WPILogRecord.StartRecordData entry = record.getStartData();
+                if (entry.entry >= slotOf.length) {
+                    int capacity = Math.max(entry.entry + 1, slotOf.length * 2);
+                    int old = slotOf.length;
+                    slotOf = Arrays.copyOf(slotOf, capacity);
+                    Arrays.fill(slotOf, old, capacity, NOT_USED);
+                    entries = Arrays.copyOf(entries, capacity);
+                }
+                entries[entry.entry] = entry;
+                if (entry.name.equals(POSE_ENTRY)) {
+                    slotOf[entry.entry] = POSE;
+                } else if (entry.type.equals("structschema")) {
+                    slotOf[entry.entry] = SLOTS; // handed to the struct registry
+                } else {
+                    slotOf[entry.entry] = Arrays.asList(ENTRIES).indexOf(entry.name);
+                    if (slotOf[entry.entry] >= 0) { integral[slotOf[entry.entry]] = entry.type.equals("int64"); }
+                }
+                continue;
+            }
+            if (control) { continue; }
+
+            // every timestamp is a row in the CSV, whether or not it has anything we use
+            rowTime = record.getTimestamp();
+            int id = record.getEntry();
+            int slot = (id < slotOf.length ? slotOf[id] : NOT_USED);
+            if (slot == NOT_USED) { continue; }
+            String type = entries[id].type;
+
+            if (slot == SLOTS) {
+                structs.add(entries[id], record);
+            } else if (slot == POSE) {
+                if (type.equals("double[]") && record.getDoubleArraySize() >= 3) {
+                    for (int i = 0; i < 3; i++) {
+                        values[POSE_X + i] = record.getDoubleArrayElement(i);
+                        seen[POSE_X + i] = true;
+                    }
+                } else if (StructRegistry.isStruct(type) && !StructRegistry.isArray(type)) {
+                    StructLayout layout = structs.getLayout(type);
+                    if (layout != pose) {
+                        pose = layout;
+                        poseFields = (pose == null ? null : new int[] { pose.indexOf("translation.x"), pose.indexOf("translation.y"), pose.indexOf("rotation.value") });
+                    }
+                    if (poseFields != null && poseFields[0] >= 0 && poseFields[1] >= 0 && poseFields[2] >= 0 && pose.getCount(record) > 0) {
+                        for (int i = 0; i < 3; i++) {
+                            values[POSE_X + i] = pose.getDouble(record, 0, poseFields[i]);
+                            seen[POSE_X + i] = true;
+                        }
+                    }
+                }
+            } else {
+                switch (type) {
+                    case "boolean" -> values[slot] = (record.getBoolean() ? 1 : 0);
+                    case "int64" -> values[slot] = record.getInteger();
+                    case "float" -> values[slot] = record.getFloat();
+                    case "double" -> values[slot] = record.getDouble();
+                    default -> { continue; }
+                }
+                seen[slot] = true;
+            }
+        }
+        return brownOutCounter;
+    }
+
+    // A kept value as text, the way the CSV export would write it (empty before the entry's first value)
+    static String format(double[] values, boolean[] seen, boolean[] integral, int slot) {
+        if (!seen[slot]) { return ""; }
+        return integral[slot] ? String.valueOf((long) values[slot]) : String.valueOf(values[slot]);
+    }
+
+    // The logs named by the command line, in order - a folder stands for every .csv and .wpilog in it
+    static List<String> findLogs(List<String> paths) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                List<String> found = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath(), "*.{csv,wpilog}")) {
+                    for (Path log : stream) {
+                        if (Files.isRegularFile(log)) { found.add(log.toString()); }
+                    }
+                }
+                Collections.sort(found);
+                files.addAll(found);
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    // The match a log is from, as it's written in the file name - "q6" in "Log_24-09-07_14-03-27_q6.csv" - or "" if the
+    // name doesn't say.  Takes the last qualification (q, qm), playoff (sf, f, e) or practice (p) number in the name.
+    public static String matchName(String path) {
+        Matcher m = MATCH_NAME.matcher(baseName(path));
+        String match = "";
+        while (m.find()) { match = m.group(1); }
+        return match;
+    }
+
+    private static final Pattern MATCH_NAME = Pattern.compile("(?i)(?<![a-z0-9])((?:qm|q|sf|f|e|p)\\d+)(?![a-z0-9])");
+
+    // A shot table name for each log: the match ("q6.csv") where that's unique in the batch, otherwise the log's own file
+    // name - a replayed match, or logs from two events, never write over each other.  The names only depend on the list of
+    // logs, so running the same logs again replaces the same files whichever order they finish in.
+    static List<String> outputNames(List<String> files) {
+        Map<String, Integer> matches = new HashMap<>();
+        for (String file : files) { matches.merge(matchName(file).toLowerCase(), 1, Integer::sum); }
+
+        List<String> names = new ArrayList<>();
+        Set<String> taken = new HashSet<>();
+        taken.add(MERGED_NAME);
+        for (String file : files) {
+            String match = matchName(file);
+            String name = !match.isEmpty() && matches.get(match.toLowerCase()) == 1 ? match : baseName(file);
+            String unique = name;
+            for (int n = 2; !taken.add(unique.toLowerCase() + ".csv"); n++) { unique = name + "_" + n; }
+            names.add(unique + ".csv");
+        }
+        return names;
+    }
+
+    private static String baseName(String path) {
+        return new File(path).getName().replaceFirst("\\.[^.]*$", "");
+    }
+}
@@ -0,0 +1,87 @@
+package com.WPILogParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ****************************************************************************************
+// Everything after the log has been decoded: the match period state machine, bringing an
+// event table back from the cache, the derived metrics and writing the workbook.  The
+// derived metrics fill in the table they're given, so each run starts from a fresh copy
+// read back from bytes - readCachedTable is that cost on its own, to subtract.
+// ****************************************************************************************
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+    // Enabled/autonomous as a match goes by: pre-match, auto, the gap, teleop, match end, then the bot sitting there
+    private static final boolean[] AUTO = { false, true, true, false, false, false, false, false };
+    private static final boolean[] ENABLED = { false, false, true, false, true, true, false, false };
+
+    private Path folder;
+    private byte[] events;
+    private String output;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = BenchmarkFixtures.createTempFolder();
+        String log = BenchmarkFixtures.writeMatchLog(folder, 0).toString();
+        PrintLogSimplified.EventSink sink = new PrintLogSimplified.EventSink();
+        new LogPipeline(List.of(sink), false).run(log, discard);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            sink.table.write(out);
+        }
+        events = bytes.toByteArray();
+        output = folder.resolve("bench").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public String matchPeriod() {
+        String period = "";
+        for (int i = 0; i < AUTO.length; i++) {
+            period = MatchState.nextPeriod(period, AUTO[i], ENABLED[i]);
+        }
+        return period;
+    }
+
+    @Benchmark
+    public EventTable readCachedTable() throws IOException {
+        return EventTable.read(new DataInputStream(new ByteArrayInputStream(events)));
+    }
+
+    @Benchmark
+    public void derivedMetrics(Blackhole blackhole) throws IOException {
+        EventTable table = EventTable.read(new DataInputStream(new ByteArrayInputStream(events)));
+        PrintLogSimplified.addDerivedMetrics(table);
+        blackhole.consume(table);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int writeWorkbook() throws IOException {
+        EventTable table = EventTable.read(new DataInputStream(new ByteArrayInputStream(events)));
+        return PrintLogSimplified.writeAnalysis(table, output, "bench", discard, discard);
+    }
+}
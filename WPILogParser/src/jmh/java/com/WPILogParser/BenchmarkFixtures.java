@@ -0,0 +1,282 @@
+package com.WPILogParser;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// ****************************************************************************************
+// Synthetic logs for the benchmarks, written to a temp folder.  The wpilog is shaped like one
+// of ours: the bot sits powered on for a while before the match, then runs a 15s auto, the
+// disabled gap and a 135s teleop at 50 loops a second, with driver/operator inputs scattered
+// through teleop so every entry handler and derived metric gets exercised.  Alongside the
+// entries we analyze it logs a few dozen odometry/swerve style entries we don't, which is
+// where the bulk of a real log is.
+//
+// The CSVs match the columns Pearascope (an AdvantageScope export, hundreds of columns) and
+// PearaDiSe (a DS log export) read.  Everything is seeded, so every run sees the same bytes.
+// ****************************************************************************************
+
+final class BenchmarkFixtures {
+    private static final long LOOP = 20000;   // microseconds between robot loops
+    private static final int JUNK_ARRAYS = 40;
+    private static final int JUNK_DOUBLES = 20;
+
+    static Path createTempFolder() throws IOException {
+        return Files.createTempDirectory("wpilogparser-jmh");
+    }
+
+    static void deleteFolder(Path folder) throws IOException {
+        try (var paths = Files.walk(folder)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // A match log with the given number of seconds of the bot sitting powered on before the match starts
+    static Path writeMatchLog(Path folder, int preMatchSeconds) throws IOException {
+        Path path = folder.resolve("akit_25-03-08_14-00-00_bench_q" + preMatchSeconds + ".wpilog");
+        Random random = new Random(5414);
+        try (LogWriter log = new LogWriter(Files.newOutputStream(path))) {
+            int enabled = log.start("/DriverStation/Enabled", "boolean");
+            int autonomous = log.start("/DriverStation/Autonomous", "boolean");
+            int matchTime = log.start("/DriverStation/MatchTime", "double");
+            int hasCoral = log.start("/RealOutputs/EE/Has Coral", "boolean");
+            int driverPOV = log.start("/DriverStation/Joystick0/POVs", "int64[]");
+            int driverButtons = log.start("/DriverStation/Joystick0/ButtonValues", "int64");
+            int driverAxes = log.start("/DriverStation/Joystick0/AxisValues", "float[]");
+            int operatorPOV = log.start("/DriverStation/Joystick1/POVs", "int64[]");
+            int operatorButtons = log.start("/DriverStation/Joystick1/ButtonValues", "int64");
+            int aligned = log.start("/RealOutputs/Align/Error/IsAligned", "boolean");
+            int elevatorOffset = log.start("/RealOutputs/Elevator/Offset", "double");
+            int armMode = log.start("/RealOutputs/Arm/Mode", "string");
+            int[] junkArrays = new int[JUNK_ARRAYS];
+            for (int i = 0; i < JUNK_ARRAYS; i++) junkArrays[i] = log.start("/RealOutputs/Drive/Module" + i + "/States", "double[]");
+            int[] junkDoubles = new int[JUNK_DOUBLES];
+            for (int i = 0; i < JUNK_DOUBLES; i++) junkDoubles[i] = log.start("/RealOutputs/Subsystem" + i + "/Value", "double");
+
+            long time = 1000000;
+            log.writeBoolean(autonomous, time, false);
+            log.writeBoolean(enabled, time, false);
+            log.writeDouble(matchTime, time, -1.0);
+
+            int preMatchLoops = preMatchSeconds * 50;
+            int autoLoops = 15 * 50;
+            int gapLoops = 2 * 50;
+            int teleopLoops = 135 * 50;
+            int postLoops = 5 * 50;
+            int totalLoops = preMatchLoops + autoLoops + gapLoops + teleopLoops + postLoops;
+            double[] states = new double[8];
+            for (int loop = 0; loop < totalLoops; loop++) {
+                time += LOOP;
+                if (loop == preMatchLoops) {
+                    log.writeBoolean(autonomous, time, true);
+                    log.writeBoolean(enabled, time, true);
+                } else if (loop == preMatchLoops + autoLoops) {
+                    log.writeBoolean(enabled, time, false);
+                    log.writeBoolean(autonomous, time, false);
+                } else if (loop == preMatchLoops + autoLoops + gapLoops) {
+                    log.writeBoolean(enabled, time, true);
+                } else if (loop == totalLoops - postLoops) {
+                    log.writeBoolean(enabled, time, false);
+                }
+
+                int matchLoop = loop - preMatchLoops;
+                if (matchLoop >= 0 && loop < totalLoops - postLoops && matchLoop % 50 == 0) {
+                    log.writeDouble(matchTime, time, matchLoop < autoLoops ? 15 - matchLoop / 50 : 150 - matchLoop / 50);
+                }
+
+                int teleopLoop = matchLoop - autoLoops - gapLoops;
+                if (teleopLoop >= 0 && teleopLoop < teleopLoops) {
+                    // a scoring cycle every 6 seconds: intake, pick up, strafe, align, score
+                    int cycleLoop = teleopLoop % 300;
+                    if (cycleLoop == 0) log.writeInteger(driverButtons, time, 16);
+                    if (cycleLoop == 60) log.writeBoolean(hasCoral, time, true);
+                    if (cycleLoop == 90) log.writeString(armMode, time, "L" + (1 + teleopLoop / 300 % 4));
+                    if (cycleLoop >= 120 && cycleLoop < 140) log.writeFloatArray(driverAxes, time, new float[] { 0, 0, cycleLoop < 130 ? 0.5f : 0, cycleLoop < 130 ? 0 : 0.5f });
+                    if (cycleLoop == 150) log.writeIntegerArray(driverPOV, time, new long[] { teleopLoop / 300 % 2 == 0 ? 90 : 270 });
+                    if (cycleLoop == 151) log.writeIntegerArray(driverPOV, time, new long[] { -1 });
+                    if (cycleLoop == 200) log.writeBoolean(aligned, time, true);
+                    if (cycleLoop == 240) log.writeInteger(driverButtons, time, 32);
+                    if (cycleLoop == 250) log.writeBoolean(hasCoral, time, false);
+                    if (cycleLoop == 260) log.writeBoolean(aligned, time, false);
+                    if (teleopLoop == 1000 || teleopLoop == 4000) log.writeInteger(operatorButtons, time, 128);
+                    if (teleopLoop % 700 == 350) log.writeDouble(elevatorOffset, time, random.nextDouble());
+                    if (teleopLoop == 1500) log.writeInteger(driverButtons, time, 1);
+                    if (teleopLoop == teleopLoops - 1000) log.writeIntegerArray(operatorPOV, time, new long[] { 180 });
+                    if (teleopLoop == teleopLoops - 200) log.writeIntegerArray(operatorPOV, time, new long[] { 0 });
+                }
+
+                for (int entry : junkArrays) {
+                    for (int i = 0; i < states.length; i++) states[i] = random.nextDouble();
+                    log.writeDoubleArray(entry, time, states);
+                }
+                for (int entry : junkDoubles) {
+                    log.writeDouble(entry, time, random.nextDouble());
+                }
+            }
+        }
+        return path;
+    }
+
+    // An AdvantageScope style export: the ~17 columns Pearascope reads, scattered among a few hundred it doesn't
+    static Path writeScopeCsv(Path folder, int rows) throws IOException {
+        Path path = folder.resolve("scope_" + rows + ".csv");
+        Random random = new Random(6);
+        List<String> columns = new ArrayList<>(List.of("/DriverStation/MatchTime", "/DriverStation/Enabled", "/RealOutputs/Transport/Ir Sensor",
+            "/RealOutputs/Drivetrain/Odometry/translation/x", "/RealOutputs/Drivetrain/Odometry/translation/y", "/RealOutputs/Drivetrain/Odometry/rotation/value",
+            "/DriverStation/Autonomous", "/RealOutputs/Amp Bar/Amp Bar Position", "/RealOutputs/Shooter/Shooter Pivot Intended Position",
+            "/RealOutputs/Shooter/Shooter Pivot Position", "/RealOutputs/Shooter/Left Shooter Speed", "/RealOutputs/Shooter/Right Shooter Speed",
+            "/DriverStation/MatchNumber", "/DriverStation/AllianceStation", "/SystemStats/BatteryVoltage", "/RealOutputs/Shooter/Shooter Pivot Adjust",
+            "/SystemStats/BrownedOut"));
+        for (int i = 0; i < 300; i++) columns.add(random.nextInt(columns.size() + 1), "/RealOutputs/Other/Column" + i);
+
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(String.join(",", columns));
+            out.write("\r\n");
+            boolean note = true;
+            StringBuilder line = new StringBuilder();
+            for (int row = 0; row < rows; row++) {
+                if (random.nextInt(100) == 0) note = !note;
+                line.setLength(0);
+                for (int c = 0; c < columns.size(); c++) {
+                    if (c > 0) line.append(',');
+                    String column = columns.get(c);
+                    switch (column) {
+                        case "/DriverStation/MatchTime" -> line.append(Math.max(0, 150 - row / 50));
+                        case "/DriverStation/Enabled" -> line.append("true");
+                        case "/RealOutputs/Transport/Ir Sensor" -> line.append(note);
+                        case "/DriverStation/Autonomous" -> line.append(row < 750);
+                        case "/SystemStats/BrownedOut" -> line.append(random.nextInt(50) == 0);
+                        case "/DriverStation/AllianceStation" -> line.append(2);
+                        case "/DriverStation/MatchNumber" -> line.append(6);
+                        default -> line.append(random.nextDouble() * 20 - 10);
+                    }
+                }
+                out.write(line.append("\r\n").toString());
+            }
+        }
+        return path;
+    }
+
+    // A DS log export with the voltage, brownout and PDP channel columns PearaDiSe reads
+    static Path writeDsCsv(Path folder, int rows) throws IOException {
+        Path path = folder.resolve("ds_" + rows + ".csv");
+        Random random = new Random(7);
+        List<String> columns = new ArrayList<>(List.of("Time", "Trip Time", "Lost Packets", "Voltage", "Brownout", "Total PDP"));
+        for (int i = 0; i <= 23; i++) columns.add("PDP " + i);
+        columns.add("CPU");
+        columns.add("CAN");
+
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(String.join(",", columns));
+            out.write("\r\n");
+            StringBuilder line = new StringBuilder();
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                for (int c = 0; c < columns.size(); c++) {
+                    if (c > 0) line.append(',');
+                    String column = columns.get(c);
+                    if (column.equals("Voltage")) {
+                        line.append(String.format("%.3f", 7 + random.nextDouble() * 6));
+                    } else if (column.equals("Brownout")) {
+                        line.append(row > rows / 3 && random.nextInt(1000) == 0 ? "True" : "False");
+                    } else if (column.startsWith("PDP") || column.equals("Total PDP")) {
+                        line.append(String.format("%.2f", random.nextDouble() * 40));
+                    } else {
+                        line.append(String.format("%.4f", random.nextDouble()));
+                    }
+                }
+                out.write(line.append("\r\n").toString());
+            }
+        }
+        return path;
+    }
+
+    // Just enough of a wpilog writer for the fixtures - every record uses 4-byte entry IDs and sizes and 8-byte timestamps
+    private static final class LogWriter implements AutoCloseable {
+        private static final int HEADER_BITS = 0x3 | (0x3 << 2) | (0x7 << 4);
+
+        private final DataOutputStream out;
+        private final ByteBuffer header = ByteBuffer.allocate(17).order(ByteOrder.LITTLE_ENDIAN);
+        private int nextEntry = 1;
+
+        LogWriter(OutputStream stream) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.write("WPILOG".getBytes(StandardCharsets.US_ASCII));
+            out.write(new byte[] { 0x00, 0x01 });   // version 1.0, little-endian
+            out.write(new byte[4]);                  // no extra header
+        }
+
+        int start(String name, String type) throws IOException {
+            int entry = nextEntry++;
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer payload = ByteBuffer.allocate(1 + 4 + 4 + nameBytes.length + 4 + typeBytes.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+            payload.put((byte) 0).putInt(entry);
+            payload.putInt(nameBytes.length).put(nameBytes);
+            payload.putInt(typeBytes.length).put(typeBytes);
+            payload.putInt(0);
+            record(0, 0, payload.array());
+            return entry;
+        }
+
+        void writeBoolean(int entry, long time, boolean value) throws IOException {
+            record(entry, time, new byte[] { (byte) (value ? 1 : 0) });
+        }
+
+        void writeInteger(int entry, long time, long value) throws IOException {
+            record(entry, time, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+        }
+
+        void writeDouble(int entry, long time, double value) throws IOException {
+            record(entry, time, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(value).array());
+        }
+
+        void writeString(int entry, long time, String value) throws IOException {
+            record(entry, time, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeIntegerArray(int entry, long time, long[] values) throws IOException {
+            ByteBuffer payload = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (long value : values) payload.putLong(value);
+            record(entry, time, payload.array());
+        }
+
+        void writeFloatArray(int entry, long time, float[] values) throws IOException {
+            ByteBuffer payload = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (float value : values) payload.putFloat(value);
+            record(entry, time, payload.array());
+        }
+
+        void writeDoubleArray(int entry, long time, double[] values) throws IOException {
+            ByteBuffer payload = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (double value : values) payload.putDouble(value);
+            record(entry, time, payload.array());
+        }
+
+        private void record(int entry, long time, byte[] payload) throws IOException {
+            header.clear();
+            header.put((byte) HEADER_BITS).putInt(entry).putInt(payload.length).putLong(time);
+            out.write(header.array(), 0, header.position());
+            out.write(payload);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private BenchmarkFixtures() { }
+}
@@ -0,0 +1,158 @@
+package com.WPILogParser;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.opencsv.CSVReader;
+
+// ****************************************************************************************
+// The CSV side (Pearascope and PearaDiSe): the hot loop of each, once through opencsv the
+// way they used to read - every field a String, columns looked up by name per row - and once
+// through CsvScanner.
+//
+// CsvScanner lives with the CSV tools in the default package, which nothing in a named
+// package can refer to (and JMH won't take a benchmark in the default package), so it's
+// reached through method handles.  They're static finals, so the JIT treats them as
+// constants and inlines straight through them.
+// ****************************************************************************************
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+    private static final MethodHandle OPEN;
+    private static final MethodHandle READ_HEADER;
+    private static final MethodHandle SELECT;
+    private static final MethodHandle NEXT;
+    private static final MethodHandle IS;
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle GET_DOUBLE;
+
+    static {
+        try {
+            Class<?> scanner = Class.forName("CsvScanner");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            OPEN = lookup.findStatic(scanner, "open", MethodType.methodType(scanner, String.class))
+                .asType(MethodType.methodType(Object.class, String.class));
+            READ_HEADER = lookup.findVirtual(scanner, "readHeader", MethodType.methodType(String[].class))
+                .asType(MethodType.methodType(String[].class, Object.class));
+            SELECT = lookup.findVirtual(scanner, "select", MethodType.methodType(int.class, String.class))
+                .asType(MethodType.methodType(int.class, Object.class, String.class));
+            NEXT = lookup.findVirtual(scanner, "next", MethodType.methodType(boolean.class))
+                .asType(MethodType.methodType(boolean.class, Object.class));
+            IS = lookup.findVirtual(scanner, "is", MethodType.methodType(boolean.class, int.class, String.class))
+                .asType(MethodType.methodType(boolean.class, Object.class, int.class, String.class));
+            GET_INT = lookup.findVirtual(scanner, "getInt", MethodType.methodType(int.class, int.class))
+                .asType(MethodType.methodType(int.class, Object.class, int.class));
+            GET_DOUBLE = lookup.findVirtual(scanner, "getDouble", MethodType.methodType(double.class, int.class))
+                .asType(MethodType.methodType(double.class, Object.class, int.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private Path folder;
+    private String scopeCsv;
+    private String dsCsv;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = BenchmarkFixtures.createTempFolder();
+        scopeCsv = BenchmarkFixtures.writeScopeCsv(folder, rows).toString();
+        dsCsv = BenchmarkFixtures.writeDsCsv(folder, rows).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public int scopeOpencsv() throws IOException {
+        int shots = 0;
+        try (CSVReader r = new CSVReader(new FileReader(scopeCsv))) {
+            String[] nextLine = r.readNext();
+            HashMap<String, Integer> columnIndexes = new HashMap<>();
+            for (int i = 0; i < nextLine.length; i++) { columnIndexes.put(nextLine[i], i); }
+            boolean hasNote = true;
+            while ((nextLine = r.readNext()) != null) {
+                if (Integer.parseInt(nextLine[columnIndexes.get("/DriverStation/MatchTime")]) > 0
+                    && nextLine[columnIndexes.get("/DriverStation/Enabled")].equals("true")
+                    && nextLine[columnIndexes.get("/RealOutputs/Transport/Ir Sensor")].equals("true") != hasNote) {
+                    hasNote = !hasNote;
+                    if (!hasNote && Double.parseDouble(nextLine[columnIndexes.get("/RealOutputs/Amp Bar/Amp Bar Position")]) > -5) shots++;
+                }
+            }
+        }
+        return shots;
+    }
+
+    @Benchmark
+    public int scopeScanner() throws Throwable {
+        int shots = 0;
+        Object r = (Object) OPEN.invokeExact(scopeCsv);
+        String[] header = (String[]) READ_HEADER.invokeExact(r);
+        int matchTime = (int) SELECT.invokeExact(r, "/DriverStation/MatchTime");
+        int enabled = (int) SELECT.invokeExact(r, "/DriverStation/Enabled");
+        int irSensor = (int) SELECT.invokeExact(r, "/RealOutputs/Transport/Ir Sensor");
+        int ampBar = (int) SELECT.invokeExact(r, "/RealOutputs/Amp Bar/Amp Bar Position");
+        boolean hasNote = true;
+        while ((boolean) NEXT.invokeExact(r)) {
+            if ((int) GET_INT.invokeExact(r, matchTime) > 0
+                && (boolean) IS.invokeExact(r, enabled, "true")
+                && (boolean) IS.invokeExact(r, irSensor, "true") != hasNote) {
+                hasNote = !hasNote;
+                if (!hasNote && (double) GET_DOUBLE.invokeExact(r, ampBar) > -5) shots++;
+            }
+        }
+        return shots + header.length;
+    }
+
+    @Benchmark
+    public double dsOpencsv() throws IOException {
+        double total = 0;
+        try (CSVReader r = new CSVReader(new FileReader(dsCsv))) {
+            String[] nextLine = r.readNext();
+            HashMap<String, Integer> columnIndexes = new HashMap<>();
+            for (int i = 0; i < nextLine.length; i++) { columnIndexes.put(nextLine[i], i); }
+            while ((nextLine = r.readNext()) != null) {
+                double voltage = Double.parseDouble(nextLine[columnIndexes.get("Voltage")]);
+                for (int i = 0; i <= 23; i++) {
+                    total += Double.parseDouble(nextLine[columnIndexes.get("PDP " + String.valueOf(i))]) * voltage;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double dsScanner() throws Throwable {
+        double total = 0;
+        Object r = (Object) OPEN.invokeExact(dsCsv);
+        String[] header = (String[]) READ_HEADER.invokeExact(r);
+        int voltageColumn = (int) SELECT.invokeExact(r, "Voltage");
+        int[] pdp = new int[24];
+        for (int i = 0; i <= 23; i++) { pdp[i] = (int) SELECT.invokeExact(r, "PDP " + String.valueOf(i)); }
+        while ((boolean) NEXT.invokeExact(r)) {
+            double voltage = (double) GET_DOUBLE.invokeExact(r, voltageColumn);
+            for (int i = 0; i <= 23; i++) {
+                total += (double) GET_DOUBLE.invokeExact(r, pdp[i]) * voltage;
+            }
+        }
+        return total + header.length;
+    }
+}
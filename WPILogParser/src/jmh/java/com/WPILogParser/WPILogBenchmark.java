@@ -0,0 +1,75 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ****************************************************************************************
+// Reading a wpilog: walking the records, and running them through the pipeline into the
+// event table (entry handler dispatch included) - with and without the match window index.
+// The pre-match length is the knob that matters, as that's what the index lets us skip.
+// ****************************************************************************************
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WPILogBenchmark {
+    @Param({"0", "600", "1200"})
+    public int preMatchSeconds;
+
+    private Path folder;
+    private String log;
+    private String indexedLog;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = BenchmarkFixtures.createTempFolder();
+        log = BenchmarkFixtures.writeMatchLog(folder, preMatchSeconds).toString();
+
+        // a second copy whose index is built here, up front, so the indexed runs never fall back to a full read
+        Path indexed = folder.resolve("indexed");
+        Files.createDirectories(indexed);
+        indexedLog = BenchmarkFixtures.writeMatchLog(indexed, preMatchSeconds).toString();
+        new LogPipeline(List.of(new PrintLogSimplified.EventSink())).run(indexedLog, discard);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public void iterateRecords(Blackhole blackhole) throws IOException {
+        try (WPILogFile file = new WPILogFile(log)) {
+            for (WPILogRecord record : file) {
+                blackhole.consume(record.getEntry());
+                blackhole.consume(record.getTimestamp());
+            }
+        }
+    }
+
+    @Benchmark
+    public int decodeEvents() {
+        PrintLogSimplified.EventSink sink = new PrintLogSimplified.EventSink();
+        new LogPipeline(List.of(sink), false).run(log, discard);
+        return sink.table.size;
+    }
+
+    @Benchmark
+    public int decodeEventsIndexed() {
+        PrintLogSimplified.EventSink sink = new PrintLogSimplified.EventSink();
+        new LogPipeline(List.of(sink)).run(indexedLog, discard);
+        return sink.table.size;
+    }
+}
@@ -0,0 +1,116 @@
+package com.WPILogParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// ****************************************************************************************
+// A TableWriter for CSV (RFC 4180: comma separated, CRLF line ends, a field quoted only if
+// it holds a comma, quote or line break).  Rows go straight out through a buffer, so a
+// full raw dump costs next to nothing beyond the text itself, and loads into anything.
+// Whole numbers are written without a decimal point.
+//
+// Write errors are held rather than thrown from every cell - the first one stops any more
+// writing and is thrown from finish().
+// ****************************************************************************************
+
+final class CsvTableWriter implements TableWriter {
+    private final String path;
+    private final BufferedWriter writer;
+    private IOException error;
+    private boolean rowStarted = false;
+    private int rows = 0;
+
+    CsvTableWriter(String path) throws IOException {
+        this.path = path;
+        this.writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void text(String value) {
+        separator();
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = (c == ',' || c == '"' || c == '\n' || c == '\r');
+        }
+        if (quote) {
+            write("\"" + value.replace("\"", "\"\"") + "\"");
+        } else {
+            write(value);
+        }
+    }
+
+    @Override
+    public void number(double value) {
+        separator();
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            write(Long.toString((long) value));
+        } else if (!Double.isNaN(value)) {
+            write(Double.toString(value));
+        }
+    }
+
+    @Override
+    public void blank() {
+        separator();
+    }
+
+    @Override
+    public void endRow() {
+        write("\r\n");
+        rowStarted = false;
+        rows++;
+    }
+
+    private void separator() {
+        if (rowStarted) write(",");
+        rowStarted = true;
+    }
+
+    private void write(String text) {
+        if (error != null) return;
+        try {
+            writer.write(text);
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public String getKind() {
+        return "CSV file";
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            if (error == null) error = ex;
+        }
+        if (error != null) throw error;
+    }
+
+    @Override
+    public void abort() {
+        try {
+            writer.close();
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException ex) {
+            // nothing more we can do with it
+        }
+    }
+}
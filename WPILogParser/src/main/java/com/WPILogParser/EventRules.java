@@ -0,0 +1,272 @@
+package com.WPILogParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// ****************************************************************************************
+// The rules that turn controller inputs (and anything else that's just a number) into
+// labelled events - "button 4 pressed" is "intake", POV 90 is "align right" and so on -
+// read from a rules file rather than written into the handlers, so a new season's
+// controls don't need a new build.  The file format is described at the top of
+// event-rules.txt, which is the default set and ships in the jar.
+//
+// The rules are compiled once, up front, into a table per entry: parallel arrays of which
+// element to look at, the test and its operand, the trigger, and the label.  Evaluating a
+// record is then a loop over that entry's slots, reading the value straight out of the
+// record - nothing is parsed, looked up by name or allocated.  Edge triggers need to know
+// whether each test held on the entry's previous record; that's per log, so it's kept by
+// the caller, in an array it allocates when the entry starts.
+// ****************************************************************************************
+
+final class EventRules {
+    static final String DEFAULT_RESOURCE = "/event-rules.txt";
+
+    // tests
+    private static final byte BIT = 0;
+    private static final byte EQUAL = 1;
+    private static final byte NOT_EQUAL = 2;
+    private static final byte LESS = 3;
+    private static final byte LESS_EQUAL = 4;
+    private static final byte GREATER = 5;
+    private static final byte GREATER_EQUAL = 6;
+
+    // triggers
+    private static final byte RISING = 0;
+    private static final byte FALLING = 1;
+    private static final byte LEVEL = 2;
+
+    // how a value is read out of a record, by entry type
+    static final int UNSUPPORTED = -1;
+    private static final int BOOLEAN = 0;
+    private static final int INTEGER = 1;
+    private static final int FLOAT = 2;
+    private static final int DOUBLE = 3;
+    private static final int BOOLEAN_ARRAY = 4;
+    private static final int INTEGER_ARRAY = 5;
+    private static final int FLOAT_ARRAY = 6;
+    private static final int DOUBLE_ARRAY = 7;
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final String fingerprint;
+
+    // The decision table for one entry - one slot per rule, in the order they appear in the file
+    static final class Table {
+        private int size = 0;
+        private int[] elements = new int[4];
+        private byte[] tests = new byte[4];
+        private double[] operands = new double[4];
+        private byte[] triggers = new byte[4];
+        private String[] labels = new String[4];
+        private String[] actions = new String[4];  // null unless the rule sets the action as well
+
+        private void add(int element, byte test, double operand, byte trigger, String label, String action) {
+            if (size == elements.length) {
+                int capacity = size * 2;
+                elements = Arrays.copyOf(elements, capacity);
+                tests = Arrays.copyOf(tests, capacity);
+                operands = Arrays.copyOf(operands, capacity);
+                triggers = Arrays.copyOf(triggers, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                actions = Arrays.copyOf(actions, capacity);
+            }
+            elements[size] = element;
+            tests[size] = test;
+            operands[size] = operand;
+            triggers[size] = trigger;
+            labels[size] = label;
+            actions[size] = action;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String label(int rule) {
+            return labels[rule];
+        }
+
+        String action(int rule) {
+            return actions[rule];
+        }
+
+        // The value a rule looks at - NaN if the record doesn't have that element
+        double value(WPILogRecord record, int kind, int rule) {
+            int element = elements[rule];
+            return switch (kind) {
+                case BOOLEAN -> (record.getBoolean() ? 1 : 0);
+                case INTEGER -> record.getInteger();
+                case FLOAT -> record.getFloat();
+                case DOUBLE -> record.getDouble();
+                case BOOLEAN_ARRAY -> (element < record.getBooleanArraySize() ? (record.getBooleanArrayElement(element) ? 1 : 0) : Double.NaN);
+                case INTEGER_ARRAY -> (element < record.getIntegerArraySize() ? record.getIntegerArrayElement(element) : Double.NaN);
+                case FLOAT_ARRAY -> (element < record.getFloatArraySize() ? record.getFloatArrayElement(element) : Double.NaN);
+                case DOUBLE_ARRAY -> (element < record.getDoubleArraySize() ? record.getDoubleArrayElement(element) : Double.NaN);
+                default -> Double.NaN;
+            };
+        }
+
+        // Runs every rule against a record.  held has one slot per rule - whether its test held on the previous record -
+        // and is updated; the rules that fire are put in fired, in order, and the number of them returned.
+        int evaluate(WPILogRecord record, int kind, boolean[] held, int[] fired) {
+            int count = 0;
+            for (int rule = 0; rule < size; rule++) {
+                double value = value(record, kind, rule);
+                double operand = operands[rule];
+                boolean test = switch (tests[rule]) {
+                    case BIT -> ((((long) value) >>> (int) operand) & 1) != 0;
+                    case EQUAL -> value == operand;
+                    case NOT_EQUAL -> !Double.isNaN(value) && value != operand;
+                    case LESS -> value < operand;
+                    case LESS_EQUAL -> value <= operand;
+                    case GREATER -> value > operand;
+                    default -> value >= operand;
+                };
+                boolean fires = switch (triggers[rule]) {
+                    case RISING -> test && !held[rule];
+                    case FALLING -> !test && held[rule];
+                    default -> test;
+                };
+                held[rule] = test;
+                if (fires) fired[count++] = rule;
+            }
+            return count;
+        }
+    }
+
+    private EventRules(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    // The rules that come with the parser
+    static EventRules loadDefault() {
+        try (InputStream in = EventRules.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) throw new IllegalStateException(DEFAULT_RESOURCE + " is missing from the build");
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8), DEFAULT_RESOURCE);
+        } catch (IOException ex) {
+            throw new IllegalStateException("the default event rules can't be read: " + ex.getMessage(), ex);
+        }
+    }
+
+    static EventRules load(Path path) throws IOException {
+        return parse(Files.readString(path), path.toString());
+    }
+
+    static EventRules parse(String text, String source) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        EventRules rules = new EventRules(String.format("%08x", crc.getValue()));
+
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            if (line.isBlank()) continue;
+            try {
+                rules.addRule(line);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(source + " line " + lineNumber + ": " + ex.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    // entry, test, trigger, label[, action]
+    private void addRule(String line) {
+        String[] fields = line.split(",");
+        for (int i = 0; i < fields.length; i++) fields[i] = fields[i].trim();
+        if (fields.length < 4 || fields.length > 5) throw new IllegalArgumentException("expected entry, test, trigger, label[, action]");
+
+        String entry = fields[0];
+        int element = 0;
+        if (entry.endsWith("]") && entry.lastIndexOf('[') > 0) {
+            element = parseInt(entry.substring(entry.lastIndexOf('[') + 1, entry.length() - 1), "element");
+            if (element < 0) throw new IllegalArgumentException("element can't be negative");
+            entry = entry.substring(0, entry.lastIndexOf('['));
+        }
+
+        String test = fields[1];
+        byte testKind;
+        double operand;
+        if (test.equals("true") || test.equals("false")) {
+            testKind = EQUAL;
+            operand = (test.equals("true") ? 1 : 0);
+        } else if (test.startsWith("bit ")) {
+            testKind = BIT;
+            operand = parseInt(test.substring(4).trim(), "bit");
+            if (operand < 0 || operand > 63) throw new IllegalArgumentException("bit must be 0-63");
+        } else {
+            String[] operators = { "==", "!=", "<=", ">=", "<", ">" };
+            byte[] kinds = { EQUAL, NOT_EQUAL, LESS_EQUAL, GREATER_EQUAL, LESS, GREATER };
+            int match = -1;
+            for (int i = 0; i < operators.length && match < 0; i++) {
+                if (test.startsWith(operators[i])) match = i;
+            }
+            if (match < 0) throw new IllegalArgumentException("unknown test '" + test + "'");
+            testKind = kinds[match];
+            try {
+                operand = Double.parseDouble(test.substring(operators[match].length()).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("'" + test + "' needs a number to compare with");
+            }
+        }
+
+        byte trigger = switch (fields[2]) {
+            case "rising" -> RISING;
+            case "falling" -> FALLING;
+            case "level" -> LEVEL;
+            default -> throw new IllegalArgumentException("unknown trigger '" + fields[2] + "' - expected rising, falling or level");
+        };
+
+        if (fields[3].isEmpty()) throw new IllegalArgumentException("missing label");
+        String action = (fields.length > 4 && !fields[4].isEmpty() ? fields[4] : null);
+        tables.computeIfAbsent(entry, name -> new Table()).add(element, testKind, operand, trigger, fields[3], action);
+    }
+
+    private static int parseInt(String text, String what) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("bad " + what + " '" + text + "'");
+        }
+    }
+
+    // The rules for an entry, or null if there are none
+    Table forEntry(String name) {
+        return tables.get(name);
+    }
+
+    // How values of an entry type are read, or UNSUPPORTED if rules can't look at that type
+    static int valueKind(String entryType) {
+        return switch (entryType) {
+            case "boolean" -> BOOLEAN;
+            case "int64" -> INTEGER;
+            case "float" -> FLOAT;
+            case "double" -> DOUBLE;
+            case "boolean[]" -> BOOLEAN_ARRAY;
+            case "int64[]" -> INTEGER_ARRAY;
+            case "float[]" -> FLOAT_ARRAY;
+            case "double[]" -> DOUBLE_ARRAY;
+            default -> UNSUPPORTED;
+        };
+    }
+
+    // Changes whenever the rules do - the events pulled out of a log depend on them, so this goes into the stamp and the
+    // cache key along with the extractor version
+    String getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,228 @@
+package com.WPILogParser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ****************************************************************************************
+// Columnar store for the events of interest pulled out of one log.  Each event is a row,
+// but rather than a row object we keep one primitive array per column.  Strings (match
+// period, value labels, actions, outcomes) are interned into a small pool and stored as
+// int codes, and entries are stored as an index into the entry pool, so the analysis
+// passes compare ints instead of strings.  The workbook is just a rendering of this table.
+//
+// Alongside the events, a few numeric entries are kept whole, as Signals, so the analysis
+// can ask what one of them was at the time of any event.
+// ****************************************************************************************
+
+final class EventTable {
+    static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    int size = 0;
+
+    // columns filled in as the log is read
+    long[] timestamps = new long[INITIAL_CAPACITY];
+    int[] periods = new int[INITIAL_CAPACITY];
+    double[] matchTimes = new double[INITIAL_CAPACITY];
+    int[] entries = new int[INITIAL_CAPACITY];
+    int[] values = new int[INITIAL_CAPACITY];
+    double[] valuesRaw = new double[INITIAL_CAPACITY];     // NaN when the event has no raw value
+
+    // columns filled in by the analysis passes
+    int[] pieces = new int[INITIAL_CAPACITY];              // 0 when the event isn't tied to a game piece
+    int[] actions = new int[INITIAL_CAPACITY];
+    int[] actionStarts = new int[INITIAL_CAPACITY];        // row the action's time span starts at
+    double[] actionValues = new double[INITIAL_CAPACITY];  // NaN unless the action carries a plain value
+    int[] cycleStarts = new int[INITIAL_CAPACITY];
+    int[] outcomes = new int[INITIAL_CAPACITY];
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringCodes = new HashMap<>();
+
+    private final List<Integer> entryIds = new ArrayList<>();
+    private final List<String> entryNames = new ArrayList<>();
+    private final List<String> entryTypes = new ArrayList<>();
+    private final Map<Integer, Integer> entryIndexes = new HashMap<>();
+
+    private final Map<String, Signal> signals = new LinkedHashMap<>();
+
+    int add(long timestamp, String period, double matchTime, int entryId, String entryName, String entryType, String value, double valueRaw) {
+        if (size == timestamps.length) grow();
+
+        int row = size++;
+        timestamps[row] = timestamp;
+        periods[row] = intern(period);
+        matchTimes[row] = matchTime;
+        entries[row] = internEntry(entryId, entryName, entryType);
+        values[row] = intern(value);
+        valuesRaw[row] = valueRaw;
+
+        pieces[row] = 0;
+        actions[row] = NONE;
+        actionStarts[row] = NONE;
+        actionValues[row] = Double.NaN;
+        cycleStarts[row] = NONE;
+        outcomes[row] = NONE;
+        return row;
+    }
+
+    int intern(String value) {
+        Integer code = stringCodes.get(value);
+        if (code == null) {
+            code = strings.size();
+            strings.add(value);
+            stringCodes.put(value, code);
+        }
+        return code;
+    }
+
+    // Looks up a string's code without adding it to the pool - NONE if the string never appeared in this log
+    int code(String value) {
+        Integer code = stringCodes.get(value);
+        return (code != null ? code : NONE);
+    }
+
+    String string(int code) {
+        return (code == NONE ? "" : strings.get(code));
+    }
+
+    int stringCount() {
+        return strings.size();
+    }
+
+    // Seconds from one row to another - what the workbook's time span formulas work out, computed the same way so the values
+    // match to the last digit
+    double seconds(int fromRow, int toRow) {
+        return timestamps[toRow] / 1000000.0 - timestamps[fromRow] / 1000000.0;
+    }
+
+    // The signal recorded for an entry, or null if that entry wasn't recorded (or never appeared in this log)
+    Signal signal(String entryName) {
+        return signals.get(entryName);
+    }
+
+    // The signal for an entry, started if this is the first we've seen of it
+    Signal addSignal(String entryName) {
+        return signals.computeIfAbsent(entryName, Signal::new);
+    }
+
+    int entryId(int row) {
+        return entryIds.get(entries[row]);
+    }
+
+    String entryName(int row) {
+        return entryNames.get(entries[row]);
+    }
+
+    String entryType(int row) {
+        return entryTypes.get(entries[row]);
+    }
+
+    // Writes the columns filled in from the log, along with the string and entry pools and the signals, so the table can be
+    // brought back without decoding the log again.  Of the analysis columns only actions is kept, as a few handlers (slow
+    // toggle) set it as the event is read - the rest are always recomputed.
+    void write(DataOutput out) throws IOException {
+        out.writeInt(strings.size());
+        for (String value : strings) out.writeUTF(value);
+        out.writeInt(entryIds.size());
+        for (int i = 0; i < entryIds.size(); i++) {
+            out.writeInt(entryIds.get(i));
+            out.writeUTF(entryNames.get(i));
+            out.writeUTF(entryTypes.get(i));
+        }
+        out.writeInt(size);
+        for (int row = 0; row < size; row++) {
+            out.writeLong(timestamps[row]);
+            out.writeInt(periods[row]);
+            out.writeDouble(matchTimes[row]);
+            out.writeInt(entries[row]);
+            out.writeInt(values[row]);
+            out.writeDouble(valuesRaw[row]);
+            out.writeInt(actions[row]);
+        }
+        out.writeInt(signals.size());
+        for (Signal signal : signals.values()) signal.write(out);
+    }
+
+    static EventTable read(DataInput in) throws IOException {
+        EventTable table = new EventTable();
+        int stringCount = in.readInt();
+        for (int i = 0; i < stringCount; i++) table.intern(in.readUTF());
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            int entryId = in.readInt();
+            String name = in.readUTF();
+            String type = in.readUTF();
+            table.entryIndexes.put(entryId, table.entryIds.size());
+            table.entryIds.add(entryId);
+            table.entryNames.add(name);
+            table.entryTypes.add(type);
+        }
+        int rows = in.readInt();
+        for (int i = 0; i < rows; i++) {
+            if (table.size == table.timestamps.length) table.grow();
+            int row = table.size++;
+            table.timestamps[row] = in.readLong();
+            table.periods[row] = checkCode(in.readInt(), stringCount);
+            table.matchTimes[row] = in.readDouble();
+            table.entries[row] = checkCode(in.readInt(), entryCount);
+            table.values[row] = checkCode(in.readInt(), stringCount);
+            table.valuesRaw[row] = in.readDouble();
+            table.pieces[row] = 0;
+            int action = in.readInt();
+            table.actions[row] = (action == NONE ? NONE : checkCode(action, stringCount));
+            table.actionStarts[row] = NONE;
+            table.actionValues[row] = Double.NaN;
+            table.cycleStarts[row] = NONE;
+            table.outcomes[row] = NONE;
+        }
+        int signalCount = in.readInt();
+        for (int i = 0; i < signalCount; i++) {
+            Signal signal = Signal.read(in);
+            table.signals.put(signal.name, signal);
+        }
+        return table;
+    }
+
+    private static int checkCode(int code, int count) throws IOException {
+        if (code < 0 || code >= count) throw new IOException("bad pool index " + code);
+        return code;
+    }
+
+    private int internEntry(int entryId, String name, String type) {
+        // entry IDs can in principle be reused after a finish record, so only reuse a pool slot if the name still matches
+        Integer index = entryIndexes.get(entryId);
+        if (index == null || !entryNames.get(index).equals(name)) {
+            index = entryIds.size();
+            entryIds.add(entryId);
+            entryNames.add(name);
+            entryTypes.add(type);
+            entryIndexes.put(entryId, index);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        periods = Arrays.copyOf(periods, capacity);
+        matchTimes = Arrays.copyOf(matchTimes, capacity);
+        entries = Arrays.copyOf(entries, capacity);
+        values = Arrays.copyOf(values, capacity);
+        valuesRaw = Arrays.copyOf(valuesRaw, capacity);
+        pieces = Arrays.copyOf(pieces, capacity);
+        actions = Arrays.copyOf(actions, capacity);
+        actionStarts = Arrays.copyOf(actionStarts, capacity);
+        actionValues = Arrays.copyOf(actionValues, capacity);
+        cycleStarts = Arrays.copyOf(cycleStarts, capacity);
+        outcomes = Arrays.copyOf(outcomes, capacity);
+    }
+}
@@ -0,0 +1,86 @@
+package com.WPILogParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// ****************************************************************************************
+// Cache of the event tables pulled out of logs, kept in ./cache/ and keyed by a hash of
+// the log's contents plus the version of the code that pulled the events out.  Re-rendering
+// a log after a change to the analysis then only costs reading back a few hundred rows,
+// rather than decoding the whole log again.  Entries for an older extractor version are
+// simply never looked up again; the folder can be deleted at any time.
+// ****************************************************************************************
+
+final class LogCache {
+    private static final String SUFFIX = ".events";
+    private static final int MAGIC = 0x57455654;   // "WEVT"
+
+    // SHA-256 of the log's contents, as hex
+    static String hash(String logFilePath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(Paths.get(logFilePath))) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // The cached event table for a key, or null if there isn't one (or it can't be read)
+    static EventTable load(String key) {
+        Path path = getPath(key);
+        if (!Files.isRegularFile(path)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) return null;
+            return EventTable.read(in);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    static void store(String key, EventTable table) throws IOException {
+        Path path = getPath(key);
+        Files.createDirectories(path.getParent());
+        // written to a temp file and moved into place, so a reader (or another worker on the same log) never sees half a file
+        Path temp = Files.createTempFile(path.getParent(), key, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(key);
+                table.write(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path getPath(String key) {
+        return Paths.get(System.getProperty("user.dir"), "cache", key + SUFFIX);
+    }
+
+    private LogCache() { }
+}
@@ -0,0 +1,141 @@
+package com.WPILogParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// ****************************************************************************************
+// Sidecar index for a log, written next to it (<log>.idx) the first time the log is read.
+// A practice-field log can have the bot powered on for 20+ minutes around a 2.5 minute
+// match, and everything outside the match is thrown away by the outputs anyway - so the
+// index records where the match sits in the file, and later reads decode just that span.
+//
+// Outside the match window the outputs only care about a handful of records: the start
+// records (so entry IDs still resolve), the /DriverStation/Enabled and Autonomous records
+// (so the match period is tracked exactly as a full read would) and, for each Enabled
+// record, the MatchTime record just before it (so the rows it produces carry the same
+// match time), plus the struct schemas (so struct values in the match can be decoded).
+// Those are the "replay" offsets.
+//
+// The index is tied to the log's size and modified time; if either changes it's ignored
+// and rebuilt.
+// ****************************************************************************************
+
+final class LogIndex {
+    static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x57494458;   // "WIDX"
+    private static final int VERSION = 3;
+
+    private long logSize;
+    private long logModified;
+
+    // the byte range [windowStart, windowEnd) holding the match; both are -1 if the log has no match in it
+    int windowStart = -1;
+    int windowEnd = -1;
+
+    int[] replay = new int[256];
+    int replayCount = 0;
+
+    // state used only while the index is being built
+    private int lastMatchTime = -1;
+    private boolean lastMatchTimeAdded = false;
+    private boolean exitPending = false;
+
+    static Path sidecar(String logFilePath) {
+        return Paths.get(logFilePath + SUFFIX);
+    }
+
+    // Called for every record, in order, while the log is read in full.  wasInMatch/inMatch are the match state before
+    // and after the record was applied.
+    void add(WPILogRecord record, int role, boolean wasInMatch, boolean inMatch) {
+        int offset = record.getOffset();
+
+        if (exitPending) {
+            windowEnd = offset;
+            exitPending = false;
+        }
+        if (!wasInMatch && inMatch) {
+            if (windowStart < 0) windowStart = offset;
+            windowEnd = -1;   // back in a match (a replayed auto, say) - the window runs on through this one
+        } else if (wasInMatch && !inMatch) {
+            exitPending = true;
+        }
+
+        if (record.isStart()) {
+            addReplay(offset);
+        } else if (role == MatchState.ENABLED) {
+            if (lastMatchTime >= 0 && !lastMatchTimeAdded) {
+                addReplay(lastMatchTime);
+                lastMatchTimeAdded = true;
+            }
+            addReplay(offset);
+        } else if (role == MatchState.AUTONOMOUS || role == MatchState.STRUCT_SCHEMA) {
+            addReplay(offset);
+        } else if (role == MatchState.MATCH_TIME) {
+            lastMatchTime = offset;
+            lastMatchTimeAdded = false;
+        }
+    }
+
+    // Called once the whole log has been read
+    void complete(WPILogFile log) {
+        if (windowStart >= 0 && windowEnd < 0) windowEnd = (int) log.getSize();
+        // a MatchTime offset is added late (when the Enabled record after it turns up), so the list may be out of order
+        Arrays.sort(replay, 0, replayCount);
+    }
+
+    boolean hasWindow() {
+        return windowStart >= 0;
+    }
+
+    // The index for a log, or null if there isn't one or it's stale
+    static LogIndex read(String logFilePath) {
+        Path path = sidecar(logFilePath);
+        if (!Files.isRegularFile(path)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            LogIndex index = new LogIndex();
+            index.logSize = in.readLong();
+            index.logModified = in.readLong();
+            Path log = Paths.get(logFilePath);
+            if (index.logSize != Files.size(log) || index.logModified != Files.getLastModifiedTime(log).toMillis()) return null;
+            index.windowStart = in.readInt();
+            index.windowEnd = in.readInt();
+            index.replayCount = in.readInt();
+            index.replay = new int[index.replayCount];
+            for (int i = 0; i < index.replayCount; i++) index.replay[i] = in.readInt();
+            return index;
+        } catch (IOException | RuntimeException ex) {
+            // a damaged index is no worse than a missing one - the log just gets read in full again
+            return null;
+        }
+    }
+
+    void write(String logFilePath) throws IOException {
+        Path log = Paths.get(logFilePath);
+        logSize = Files.size(log);
+        logModified = Files.getLastModifiedTime(log).toMillis();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sidecar(logFilePath))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logSize);
+            out.writeLong(logModified);
+            out.writeInt(windowStart);
+            out.writeInt(windowEnd);
+            out.writeInt(replayCount);
+            for (int i = 0; i < replayCount; i++) out.writeInt(replay[i]);
+        }
+    }
+
+    private void addReplay(int offset) {
+        if (replayCount == replay.length) replay = Arrays.copyOf(replay, replayCount * 2);
+        replay[replayCount++] = offset;
+    }
+}
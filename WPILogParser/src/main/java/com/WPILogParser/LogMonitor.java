@@ -0,0 +1,216 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// ****************************************************************************************
+// Watches a folder and hands each log that lands in it to a worker.  The watch thread does
+// nothing but notice files and queue them, so a log dropped in while another is still being
+// processed isn't kept waiting behind it.  A dispatcher takes logs off the queue and starts
+// each on its own thread - a virtual thread where the JVM has them (21+), otherwise a pooled
+// one - with no more than maxConcurrent running at once.  Workers spend most of their time
+// waiting on a log that's still being copied, which costs a virtual thread next to nothing.
+//
+// Create and modify events both queue a log, but a log is only ever queued or running once
+// at a time.  Events while a log is being processed are the copy its worker waits out, so
+// it's only queued again if it has changed since the worker finished with it.  If the watch
+// overflows (events were dropped), the folder is rescanned for anything new or changed, and
+// if the watch is lost altogether (the folder was removed or renamed) it's re-registered as
+// soon as the folder is back.
+// ****************************************************************************************
+
+final class LogMonitor {
+    private static final long REREGISTER_MILLIS = 1000;
+
+    private final Path folder;
+    private final int maxConcurrent;
+    private final Consumer<Path> worker;
+
+    private final BlockingQueue<Path> queue = new LinkedBlockingQueue<>();
+    private final Map<Path, FileState> handled = new ConcurrentHashMap<>();  // what each log looked like when last handled
+    private final Set<Path> active = ConcurrentHashMap.newKeySet();          // queued or being processed
+    private final Set<Path> changed = ConcurrentHashMap.newKeySet();         // had events while active
+
+    // Size and modified time - enough to tell a log that's really changed from one that's just been touched
+    private static final class FileState {
+        final long size;
+        final long modified;
+
+        FileState(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static FileState of(Path path) {
+            try {
+                return new FileState(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FileState state && state.size == size && state.modified == modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+
+    LogMonitor(Path folder, int maxConcurrent, Consumer<Path> worker) {
+        this.folder = folder;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.worker = worker;
+    }
+
+    // Watches until interrupted.  Logs already in the folder are left alone; only new or changed ones are processed.
+    void run() throws IOException, InterruptedException {
+        for (Path path : listLogs()) {
+            FileState state = FileState.of(path);
+            if (state != null) handled.put(path, state);
+        }
+
+        Thread dispatcher = new Thread(this::dispatch, "log dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            if (!Files.isDirectory(folder)) {
+                System.err.println("WARNING: " + folder.toAbsolutePath() + " doesn't exist - waiting for it to be created");
+            }
+            WatchKey key = register(watchService);
+            System.out.println("Monitoring folder: " + folder.toAbsolutePath() + " (up to " + maxConcurrent + " logs at once)");
+
+            while (true) {
+                WatchKey signalled = watchService.take();
+                for (WatchEvent<?> event : signalled.pollEvents()) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        System.err.println("WARNING: missed some changes in " + folder + " - rescanning it");
+                        rescan();
+                    } else {
+                        offer(folder.resolve((Path) event.context()));
+                    }
+                }
+
+                // Reset the key to receive further watch events
+                if (!signalled.reset()) {
+                    System.err.println("WARNING: lost the watch on " + folder + " - waiting for it to come back");
+                    key.cancel();
+                    key = register(watchService);
+                    System.out.println("Monitoring folder again: " + folder.toAbsolutePath());
+                    rescan();
+                }
+            }
+        } finally {
+            dispatcher.interrupt();
+        }
+    }
+
+    // Keeps trying until the folder is there to watch
+    private WatchKey register(WatchService watchService) throws InterruptedException {
+        while (true) {
+            try {
+                return folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException ex) {
+                Thread.sleep(REREGISTER_MILLIS);
+            }
+        }
+    }
+
+    private void rescan() {
+        for (Path path : listLogs()) {
+            offer(path);
+        }
+    }
+
+    private List<Path> listLogs() {
+        List<Path> logs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.wpilog")) {
+            for (Path path : stream) logs.add(path);
+        } catch (IOException ex) {
+            // nothing to list - the folder's gone, which the watch will report
+        }
+        return logs;
+    }
+
+    private void offer(Path path) {
+        if (!path.getFileName().toString().toLowerCase().endsWith(".wpilog")) return;
+        if (!active.add(path)) {
+            // it's in hand already - make sure it's looked at again once the worker is done with it
+            changed.add(path);
+            return;
+        }
+        FileState state = FileState.of(path);
+        if (state == null || state.equals(handled.get(path))) {
+            // deleted, or nothing has changed since we last processed it
+            active.remove(path);
+            return;
+        }
+        queue.add(path);
+    }
+
+    private void dispatch() {
+        ExecutorService workers = newWorkerExecutor();
+        Semaphore running = new Semaphore(maxConcurrent);
+        try {
+            while (true) {
+                Path path = queue.take();
+                running.acquire();
+                workers.execute(() -> {
+                    try {
+                        worker.accept(path);
+                    } catch (RuntimeException ex) {
+                        System.err.println("ERROR: failed processing " + path + ": " + ex);
+                    } finally {
+                        // taken once the worker's done, as it waits out a copy in progress - the writes it waited for aren't
+                        // a change to come back for
+                        FileState state = FileState.of(path);
+                        if (state != null) handled.put(path, state);
+                        // cleared while the log's still active, so an event in between can't queue it yet again
+                        boolean again = changed.remove(path);
+                        active.remove(path);
+                        running.release();
+                        if (again) offer(path);
+                    }
+                });
+            }
+        } catch (InterruptedException ex) {
+            workers.shutdownNow();
+        }
+    }
+
+    // A thread per log - virtual if this JVM has them, which is looked up at run time so we still run on 17
+    private static ExecutorService newWorkerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "log worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.Iterator;
+import java.util.List;
+
+// ****************************************************************************************
+// Decodes a log once and fans each record out to any number of sinks.  The entry table and
+// match state live here, so they're built once per log rather than once per output.
+//
+// The first read of a log goes through every record and leaves a LogIndex beside it.  Reads
+// after that use the index to decode only the match window, plus the few records outside
+// it that the outputs still depend on - the sinks see the same thing either way.  A log
+// that's still being written can be followed instead, decoding records as they land.
+//
+// Opening the log and the read itself are timed into the pipeline's StageMetrics, along
+// with the records and bytes decoded and any records whose entry never started.
+// ****************************************************************************************
+
+final class LogPipeline {
+    private final List<LogSink> sinks;
+    private final boolean useIndex;
+    private final MatchState match = new MatchState();
+    private final StageMetrics metrics;
+
+    // both indexed by entry ID - an entry with no start record yet has a null entry
+    private WPILogRecord.StartRecordData[] entries = new WPILogRecord.StartRecordData[256];
+    private int[] roles = new int[256];
+
+    private int records = 0;
+    private long timestamp = -1;
+
+    LogPipeline(List<LogSink> sinks) {
+        this(sinks, true);
+    }
+
+    // Without the index every read is a full one, and no index is written
+    LogPipeline(List<LogSink> sinks, boolean useIndex) {
+        this(sinks, useIndex, new StageMetrics(""));
+    }
+
+    LogPipeline(List<LogSink> sinks, boolean useIndex, StageMetrics metrics) {
+        this.sinks = sinks;
+        this.useIndex = useIndex;
+        this.metrics = metrics;
+    }
+
+    // Reads the log through every sink, then finishes each one.  Returns false if the log couldn't be read or any sink failed.
+    boolean run(String logFilePath, PrintStream err) {
+        metrics.start(StageMetrics.OPEN);
+        try (WPILogFile log = new WPILogFile(logFilePath)) {
+            if (!log.isValid()) {
+                err.println("ERROR: not a log file");
+                abort();
+                return false;
+            }
+
+            LogIndex index = (useIndex ? LogIndex.read(logFilePath) : null);
+            boolean indexed = (index != null && isUsable(index, log));
+            metrics.stop(StageMetrics.OPEN);
+            if (indexed) {
+                metrics.start(StageMetrics.READ);
+                readIndexed(log, index, err);
+                metrics.stop(StageMetrics.READ);
+            } else if (!useIndex) {
+                metrics.start(StageMetrics.READ);
+                readAll(log, null, err);
+                metrics.stop(StageMetrics.READ);
+            } else {
+                index = new LogIndex();
+                metrics.start(StageMetrics.READ);
+                readAll(log, index, err);
+                metrics.stop(StageMetrics.READ);
+                metrics.start(StageMetrics.INDEX_WRITE);
+                try {
+                    index.write(logFilePath);
+                } catch (IOException ex) {
+                    // not fatal - the next read of this log will just be a full one too
+                    err.println("WARNING: could not write index for " + logFilePath + ": " + ex.getMessage());
+                }
+                metrics.stop(StageMetrics.INDEX_WRITE);
+            }
+        } catch (IOException ex) {
+            err.println("ERROR: could not open file: " + ex.getMessage());
+            abort();
+            return false;
+        } catch (IllegalArgumentException ex) {
+            err.println("WARNING: IllegalArgumentException (might be fine - check the output)");
+        }
+
+        metrics.timestamps = records;
+        boolean success = true;
+        for (LogSink sink : sinks) {
+            success &= sink.finish(records);
+        }
+        return success;
+    }
+
+    // Follows a log that's still being written - the robot's, or one still being copied off it.  Whatever is in the file is
+    // decoded, then the file is watched and decoding picks up from the last complete record each time it grows, so the
+    // sinks are fed records within a poll of them landing in the log.  This stops as soon as the match ends, and the sinks
+    // are finished there and then.  progress is run after each batch of new records.
+    //
+    // No index is read or written, as the log isn't finished.  Returns false if the match never ended (the log stopped
+    // growing for idleMillis first) or the log couldn't be read - the sinks are aborted then, and it's up to the caller to
+    // read the log once it's finished.
+    boolean follow(String logFilePath, long pollMillis, long idleMillis, Runnable progress, PrintStream err) {
+        Path path = Paths.get(logFilePath);
+        int position = -1;
+        long size = -1;
+        long lastGrowth = System.currentTimeMillis();
+        try {
+            while (!match.period.equals("match end")) {
+                long current = Files.size(path);
+                if (current != size) {
+                    // the file is mapped afresh each time, as a mapping doesn't grow with the file
+                    metrics.start(StageMetrics.OPEN);
+                    try (WPILogFile log = new WPILogFile(path)) {
+                        metrics.stop(StageMetrics.OPEN);
+                        if (log.isValid()) {
+                            if (position < 0) position = log.getDataOffset();
+                            metrics.start(StageMetrics.READ);
+                            position = readFrom(log, position, err);
+                            metrics.stop(StageMetrics.READ);
+                        }
+                    }
+                    size = current;
+                    lastGrowth = System.currentTimeMillis();
+                    progress.run();
+                } else if (System.currentTimeMillis() - lastGrowth > idleMillis) {
+                    abort();
+                    return false;
+                } else {
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } catch (IOException ex) {
+            err.println("ERROR: could not read file: " + ex.getMessage());
+            abort();
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            abort();
+            return false;
+        } catch (IllegalArgumentException ex) {
+            err.println("WARNING: IllegalArgumentException (might be fine - check the output)");
+        }
+
+        metrics.timestamps = records;
+        boolean success = true;
+        for (LogSink sink : sinks) {
+            success &= sink.finish(records);
+        }
+        return success;
+    }
+
+    // Reads the complete records from the given offset on, stopping early if the match ends; returns where to carry on from
+    private int readFrom(WPILogFile log, int position, PrintStream err) {
+        Iterator<WPILogRecord> records = log.iterator(position);
+        while (records.hasNext() && !match.period.equals("match end")) {
+            WPILogRecord record = records.next();
+            process(record, err);
+            position = record.getEnd();
+        }
+        return position;
+    }
+
+    // Reads every record, building the index as it goes if one is given
+    private void readAll(WPILogFile log, LogIndex index, PrintStream err) {
+        for (WPILogRecord record : log) {
+            boolean wasInMatch = match.inMatch();
+            process(record, err);
+            if (index != null) index.add(record, roleOf(record), wasInMatch, match.inMatch());
+        }
+        if (index != null) index.complete(log);
+    }
+
+    // Replays the indexed records ahead of the match window, decodes the window itself, then replays the ones after it
+    private void readIndexed(WPILogFile log, LogIndex index, PrintStream err) {
+        int next = 0;
+        while (next < index.replayCount && (!index.hasWindow() || index.replay[next] < index.windowStart)) {
+            process(log.iterator(index.replay[next++]).next(), err);
+        }
+        if (index.hasWindow()) {
+            Iterator<WPILogRecord> window = log.iterator(index.windowStart);
+            while (window.hasNext()) {
+                WPILogRecord record = window.next();
+                if (record.getOffset() >= index.windowEnd) break;
+                process(record, err);
+            }
+            while (next < index.replayCount && index.replay[next] < index.windowEnd) next++;
+            while (next < index.replayCount) {
+                process(log.iterator(index.replay[next++]).next(), err);
+            }
+        }
+    }
+
+    // An index that points anywhere a record doesn't start is no good (it passed the size/time check, but even so)
+    private static boolean isUsable(LogIndex index, WPILogFile log) {
+        if (index.hasWindow() && (index.windowEnd > log.getSize() || !log.iterator(index.windowStart).hasNext())) return false;
+        for (int i = 0; i < index.replayCount; i++) {
+            if (!log.iterator(index.replay[i]).hasNext()) return false;
+        }
+        return true;
+    }
+
+    private int roleOf(WPILogRecord record) {
+        int id = record.getEntry();
+        return (record.isControl() || id >= roles.length ? MatchState.OTHER : roles[id]);
+    }
+
+    private void process(WPILogRecord record, PrintStream err) {
+        // Keeping track of how many records we're processing - this is only used for console output to inform the user.
+        if (timestamp != record.getTimestamp()) {
+            records++;
+            timestamp = record.getTimestamp();
+        }
+        metrics.records++;
+        metrics.bytesRead += record.getEnd() - record.getOffset();
+        // The wpilog spec allows for other record types, but our logs only seem to carry start and data records.
+        if (record.isStart()) {
+            WPILogRecord.StartRecordData entry;
+            try {
+                entry = record.getStartData();
+            } catch (InputMismatchException ex) {
+                err.println("WARNING: Start(INVALID)");
+                return;
+            }
+            metrics.entries++;
+            addEntry(entry);
+            for (LogSink sink : sinks) {
+                sink.start(entry);
+            }
+        } else if (!record.isControl()) {
+            int id = record.getEntry();
+            WPILogRecord.StartRecordData entry = (id < entries.length ? entries[id] : null);
+            if (entry == null) {
+                metrics.unknownEntry(id);
+                err.println("WARNING: <ID not found: " + id + ">");
+                return;
+            }
+            match.update(roles[id], record);
+            for (LogSink sink : sinks) {
+                sink.data(match, record, entry);
+            }
+        }
+    }
+
+    private void addEntry(WPILogRecord.StartRecordData entry) {
+        if (entry.entry >= entries.length) {
+            int capacity = Math.max(entry.entry + 1, entries.length * 2);
+            entries = Arrays.copyOf(entries, capacity);
+            roles = Arrays.copyOf(roles, capacity);
+        }
+        entries[entry.entry] = entry;
+        roles[entry.entry] = MatchState.role(entry.name);
+    }
+
+    private void abort() {
+        for (LogSink sink : sinks) {
+            sink.abort();
+        }
+    }
+}
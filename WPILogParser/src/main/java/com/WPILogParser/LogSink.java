@@ -0,0 +1,21 @@
+package com.WPILogParser;
+
+// ****************************************************************************************
+// One output fed by a LogPipeline - the analysis workbook, the raw dump, and so on.  The
+// pipeline decodes the log once and hands every record to each of its sinks in turn.
+// ****************************************************************************************
+
+interface LogSink {
+    // A new entry has started; its data records will follow
+    default void start(WPILogRecord.StartRecordData entry) { }
+
+    // A data record.  The match state has already been updated for this record, and the record itself is only good
+    // until this returns - the pipeline reuses it for the next one.
+    void data(MatchState match, WPILogRecord record, WPILogRecord.StartRecordData entry);
+
+    // The whole log has been read; records is the number of distinct timestamps seen.  Returns false if the output failed.
+    boolean finish(int records);
+
+    // The log couldn't be read at all - release anything held without writing output
+    default void abort() { }
+}
@@ -0,0 +1,58 @@
+package com.WPILogParser;
+
+// ****************************************************************************************
+// Where we are in the match, worked out from the DriverStation entries as the log is read.
+// One of these is kept per decode and shared by every sink, so the period tracking is done
+// once no matter how many outputs are being produced.
+// ****************************************************************************************
+
+final class MatchState {
+    // What a given entry means for match tracking - worked out once per entry, from its start record
+    static final int OTHER = 0;
+    static final int ENABLED = 1;
+    static final int AUTONOMOUS = 2;
+    static final int MATCH_TIME = 3;
+    // not match tracking as such, but a schema has to be seen before any struct value that needs it, wherever it is in the log
+    static final int STRUCT_SCHEMA = 4;
+
+    String period = "";
+    double matchTime = 0.0;
+    boolean auto = false;
+
+    static int role(String name) {
+        return switch (name) {
+            case "/DriverStation/Enabled" -> ENABLED;
+            case "/DriverStation/Autonomous" -> AUTONOMOUS;
+            case "/DriverStation/MatchTime" -> MATCH_TIME;
+            default -> (name.startsWith(StructRegistry.SCHEMA_PREFIX) ? STRUCT_SCHEMA : OTHER);
+        };
+    }
+
+    void update(int role, WPILogRecord record) {
+        switch (role) {
+            case ENABLED -> period = nextPeriod(period, auto, record.getBoolean());
+            case AUTONOMOUS -> auto = record.getBoolean();
+            case MATCH_TIME -> matchTime = record.getDouble();
+            default -> { }
+        }
+    }
+
+    // True from the start of auto until the match ends - everything outside this is the bot sitting powered on in the pits or queue
+    boolean inMatch() {
+        return period.equals("auto") || period.equals("disabled") || period.equals("teleop");
+    }
+
+    static String nextPeriod(String matchPeriod, boolean auto, boolean enabled) {
+        // Once the robot is connected to the FMS, autonomous will be TRUE and enabled will be FALSE.  So, once we see enabled go TRUE while auto is TRUE, we know the Auto period has begun.  After Auto period, there will be a momentary (~2 seconds) Disabled period.  When enabled goes TRUE again, Teleop period has begun - autonomous will be false, but we don't need to check that as we're watching for the transition from Disabled period.
+        if(enabled && auto) {
+            matchPeriod = "auto";
+        } else if (!enabled && matchPeriod.equals("auto")) {
+            matchPeriod = "disabled";
+        } else if (enabled && matchPeriod.equals("disabled")) {
+            matchPeriod = "teleop";
+        } else if (!enabled && matchPeriod.equals("teleop")) {
+            matchPeriod = "match end";
+        }
+        return matchPeriod;
+    }
+}
@@ -0,0 +1,280 @@
+package com.WPILogParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// ****************************************************************************************
+// Every match analyzed, kept in one place so questions about a whole event (or season) -
+// average cycle time by match, intake time by piece type and so on - can be answered
+// without opening a workbook per match, let alone decoding the logs again.
+//
+// The store is the ./store/ folder, with one segment file per log, named for the log's
+// hash.  A segment is written once the log's derived metrics are done and holds just the
+// measurements: a row per timed action (and per cycle) with its period, the piece it
+// belongs to and what that piece was scored as, stored a column at a time.  Processing
+// another log only ever adds (or, for a re-analyzed log, replaces) its own segment, so
+// workers on different logs never touch the same file.  A segment is stamped like the
+// workbook is, and one from an older analysis is replaced the next time its log is run.
+// ****************************************************************************************
+
+final class MatchStore {
+    static final String BY_MATCH = "match";
+    static final String BY_PERIOD = "period";
+    static final String BY_PIECE = "piece";
+
+    static final String CYCLE = "Cycle";
+
+    private static final String SUFFIX = ".match";
+    private static final int MAGIC = 0x574d5453;   // "WMTS"
+
+    // One match's measurements, column by column
+    private static final class Segment {
+        String stamp;
+        String match;
+        List<String> strings = new ArrayList<>();
+        int size;
+        long[] timestamps;
+        int[] periods;
+        int[] metrics;
+        double[] values;        // seconds for a time span; NaN for an action that's just counted
+        int[] pieces;           // 0 when the row isn't tied to a piece
+        int[] pieceTypes;       // what the row's piece was scored as - NONE if it never was
+    }
+
+    // Whether the store already has this log's measurements from the current analysis
+    static boolean contains(String hash, String stamp) {
+        Path path = getPath(hash);
+        if (!Files.isRegularFile(path)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            return in.readInt() == MAGIC && in.readUTF().equals(stamp);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    // Adds (or replaces) one log's measurements.  The derived metrics must already have been run over the table.
+    static void add(String hash, String stamp, String match, EventTable table) throws IOException {
+        Segment segment = toSegment(table);
+        Path path = getPath(hash);
+        Files.createDirectories(path.getParent());
+        // written to a temp file and moved into place, so a query never sees half a segment
+        Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(stamp);
+                out.writeUTF(match);
+                out.writeInt(segment.strings.size());
+                for (String value : segment.strings) out.writeUTF(value);
+                out.writeInt(segment.size);
+                for (int i = 0; i < segment.size; i++) out.writeLong(segment.timestamps[i]);
+                for (int i = 0; i < segment.size; i++) out.writeInt(segment.periods[i]);
+                for (int i = 0; i < segment.size; i++) out.writeInt(segment.metrics[i]);
+                for (int i = 0; i < segment.size; i++) out.writeDouble(segment.values[i]);
+                for (int i = 0; i < segment.size; i++) out.writeInt(segment.pieces[i]);
+                for (int i = 0; i < segment.size; i++) out.writeInt(segment.pieceTypes[i]);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Segment toSegment(EventTable table) {
+        // a piece's type comes from the outtake that scored it, which is usually well after its intake and align rows
+        Map<Integer, Integer> pieceOutcomes = new HashMap<>();
+        for (int r = 0; r < table.size; r++) {
+            if (table.pieces[r] > 0 && table.outcomes[r] != EventTable.NONE) pieceOutcomes.put(table.pieces[r], table.outcomes[r]);
+        }
+
+        Segment segment = new Segment();
+        Map<Integer, Integer> codes = new HashMap<>();   // table string code -> segment string code
+        int capacity = 0;
+        for (int r = 0; r < table.size; r++) {
+            if (table.actions[r] != EventTable.NONE) capacity++;
+            if (table.cycleStarts[r] != EventTable.NONE) capacity++;
+        }
+        segment.timestamps = new long[capacity];
+        segment.periods = new int[capacity];
+        segment.metrics = new int[capacity];
+        segment.values = new double[capacity];
+        segment.pieces = new int[capacity];
+        segment.pieceTypes = new int[capacity];
+
+        int cycle = EventTable.NONE;
+        for (int r = 0; r < table.size; r++) {
+            if (table.actions[r] != EventTable.NONE) {
+                double value = (table.actionStarts[r] != EventTable.NONE ? table.seconds(table.actionStarts[r], r) : Double.NaN);
+                addRow(segment, codes, table, r, code(segment, codes, table, table.actions[r]), value);
+            }
+            if (table.cycleStarts[r] != EventTable.NONE) {
+                if (cycle == EventTable.NONE) cycle = segmentCode(segment, CYCLE);
+                addRow(segment, codes, table, r, cycle, table.seconds(table.cycleStarts[r], r));
+            }
+        }
+
+        // piece types last, as they're the only strings not already in the segment's pool
+        for (int i = 0; i < segment.size; i++) {
+            Integer outcome = (segment.pieces[i] > 0 ? pieceOutcomes.get(segment.pieces[i]) : null);
+            segment.pieceTypes[i] = (outcome != null ? code(segment, codes, table, outcome) : EventTable.NONE);
+        }
+        return segment;
+    }
+
+    private static void addRow(Segment segment, Map<Integer, Integer> codes, EventTable table, int r, int metric, double value) {
+        int i = segment.size++;
+        segment.timestamps[i] = table.timestamps[r];
+        segment.periods[i] = code(segment, codes, table, table.periods[r]);
+        segment.metrics[i] = metric;
+        segment.values[i] = value;
+        segment.pieces[i] = table.pieces[r];
+    }
+
+    private static int code(Segment segment, Map<Integer, Integer> codes, EventTable table, int tableCode) {
+        Integer code = codes.get(tableCode);
+        if (code == null) {
+            code = segmentCode(segment, table.string(tableCode));
+            codes.put(tableCode, code);
+        }
+        return code;
+    }
+
+    private static int segmentCode(Segment segment, String value) {
+        int code = segment.strings.indexOf(value);
+        if (code < 0) {
+            code = segment.strings.size();
+            segment.strings.add(value);
+        }
+        return code;
+    }
+
+    private static Segment read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a match segment");
+            Segment segment = new Segment();
+            segment.stamp = in.readUTF();
+            segment.match = in.readUTF();
+            int stringCount = in.readInt();
+            for (int i = 0; i < stringCount; i++) segment.strings.add(in.readUTF());
+            int size = in.readInt();
+            if (size < 0) throw new IOException("bad segment size " + size);
+            segment.size = size;
+            segment.timestamps = new long[size];
+            segment.periods = new int[size];
+            segment.metrics = new int[size];
+            segment.values = new double[size];
+            segment.pieces = new int[size];
+            segment.pieceTypes = new int[size];
+            for (int i = 0; i < size; i++) segment.timestamps[i] = in.readLong();
+            for (int i = 0; i < size; i++) segment.periods[i] = checkCode(in.readInt(), stringCount);
+            for (int i = 0; i < size; i++) segment.metrics[i] = checkCode(in.readInt(), stringCount);
+            for (int i = 0; i < size; i++) segment.values[i] = in.readDouble();
+            for (int i = 0; i < size; i++) segment.pieces[i] = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int pieceType = in.readInt();
+                segment.pieceTypes[i] = (pieceType == EventTable.NONE ? EventTable.NONE : checkCode(pieceType, stringCount));
+            }
+            return segment;
+        }
+    }
+
+    private static int checkCode(int code, int count) throws IOException {
+        if (code < 0 || code >= count) throw new IOException("bad pool index " + code);
+        return code;
+    }
+
+    // Running count and total of one metric within one group
+    private static final class Stat {
+        int count = 0;       // every occurrence, timed or not
+        int timed = 0;
+        double total = 0.0;
+
+        void add(double value) {
+            count++;
+            if (Double.isNaN(value)) return;
+            timed++;
+            total += value;
+        }
+    }
+
+    // Prints the average (and count) of every metric across the whole store, a row per match, period or piece type
+    static void printStats(String groupBy, PrintStream out, PrintStream err) {
+        Path folder = getFolder();
+        List<Segment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    segments.add(read(path));
+                } catch (IOException ex) {
+                    err.println("WARNING: skipping " + path.getFileName() + ": " + ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            err.println("ERROR: nothing in the match store yet (" + folder + ")");
+            return;
+        }
+
+        // group -> metric -> stat, groups in name order and metrics in the order they're first met
+        Map<String, Map<String, Stat>> groups = new TreeMap<>();
+        Set<String> metrics = new LinkedHashSet<>();
+        metrics.add(CYCLE);
+        segments.sort((a, b) -> a.match.compareTo(b.match));
+        for (Segment segment : segments) {
+            for (int i = 0; i < segment.size; i++) {
+                String group = switch (groupBy) {
+                    case BY_PERIOD -> segment.strings.get(segment.periods[i]);
+                    case BY_PIECE -> (segment.pieceTypes[i] != EventTable.NONE ? segment.strings.get(segment.pieceTypes[i]) : "(not scored)");
+                    default -> segment.match;
+                };
+                String metric = segment.strings.get(segment.metrics[i]);
+                metrics.add(metric);
+                groups.computeIfAbsent(group, g -> new HashMap<>()).computeIfAbsent(metric, m -> new Stat()).add(segment.values[i]);
+            }
+        }
+
+        out.println(segments.size() + " matches in " + folder + " - average seconds (count), by " + groupBy);
+        StringBuilder line = new StringBuilder(String.format("%-24s", ""));
+        for (String metric : metrics) line.append(String.format(" %22s", metric));
+        out.println(line);
+        for (Map.Entry<String, Map<String, Stat>> group : groups.entrySet()) {
+            line = new StringBuilder(String.format("%-24s", group.getKey()));
+            for (String metric : metrics) {
+                Stat stat = group.getValue().get(metric);
+                String cell = "";
+                if (stat != null) {
+                    cell = (stat.timed > 0 ? String.format("%.2f (%d)", stat.total / stat.timed, stat.count) : String.format("- (%d)", stat.count));
+                }
+                line.append(String.format(" %22s", cell));
+            }
+            out.println(line);
+        }
+    }
+
+    private static Path getFolder() {
+        return Paths.get(System.getProperty("user.dir"), "store");
+    }
+
+    private static Path getPath(String hash) {
+        return getFolder().resolve(hash + SUFFIX);
+    }
+
+    private MatchStore() { }
+}
@@ -0,0 +1,83 @@
+package com.WPILogParser;
+
+// ****************************************************************************************
+// The headline numbers for one match - average cycle, intake, strafing and aligning times
+// and how many game pieces were handled - worked out from the event table once the
+// derived metrics have been run over it.  These are the numbers the workbook's summary
+// rows show; computing them here means the workbook carries plain values rather than
+// formulas for whoever opens it to work through, and anything else that wants them (the
+// console, other output formats) gets exactly the same figures.
+// ****************************************************************************************
+
+final class MatchSummary {
+    // What each of values() is, in order
+    static final String[] LABELS = new String[] {"Avg Cycle Time", "Avg Time Spent Intaking", "Avg Time Spent Strafing", "Avg Time Spent Aligning", "Game pieces handled"};
+
+    // NaN when there was nothing to average
+    final double avgCycle;
+    final double avgIntake;
+    final double avgStrafing;
+    final double avgAligning;
+    final int pieces;
+
+    private MatchSummary(double avgCycle, double avgIntake, double avgStrafing, double avgAligning, int pieces) {
+        this.avgCycle = avgCycle;
+        this.avgIntake = avgIntake;
+        this.avgStrafing = avgStrafing;
+        this.avgAligning = avgAligning;
+        this.pieces = pieces;
+    }
+
+    static MatchSummary of(EventTable table) {
+        int timeToIntake = table.code("Time to intake");
+        int timeStrafing = table.code("Time spent strafing");
+        int timeAligning = table.code("Time spent aligning");
+
+        double cycleTotal = 0, intakeTotal = 0, strafingTotal = 0, aligningTotal = 0;
+        int cycles = 0, intakes = 0, strafes = 0, aligns = 0;
+        int maxPiece = 0;
+        for (int r = 0; r < table.size; r++) {
+            if (table.cycleStarts[r] != EventTable.NONE) {
+                cycleTotal += table.seconds(table.cycleStarts[r], r);
+                cycles++;
+            }
+            int action = table.actions[r];
+            if (action != EventTable.NONE) {
+                double value = actionValue(table, r);
+                if (!Double.isNaN(value)) {
+                    if (action == timeToIntake) { intakeTotal += value; intakes++; }
+                    else if (action == timeStrafing) { strafingTotal += value; strafes++; }
+                    else if (action == timeAligning) { aligningTotal += value; aligns++; }
+                }
+            }
+            maxPiece = Math.max(maxPiece, table.pieces[r]);
+        }
+
+        // pieces are numbered 1, 2, 3... in the order they're handled, so the highest number is how many distinct ones there were
+        return new MatchSummary(average(cycleTotal, cycles), average(intakeTotal, intakes), average(strafingTotal, strafes),
+            average(aligningTotal, aligns), maxPiece);
+    }
+
+    // The number in a row's T/Val column - a time span, or the plain value some actions carry; NaN if there's neither
+    static double actionValue(EventTable table, int row) {
+        return (table.actionStarts[row] != EventTable.NONE ? table.seconds(table.actionStarts[row], row) : table.actionValues[row]);
+    }
+
+    private static double average(double total, int count) {
+        return (count > 0 ? total / count : Double.NaN);
+    }
+
+    double[] values() {
+        return new double[] { avgCycle, avgIntake, avgStrafing, avgAligning, pieces };
+    }
+
+    @Override
+    public String toString() {
+        return "avg cycle " + seconds(avgCycle) + ", intake " + seconds(avgIntake) + ", strafing " + seconds(avgStrafing)
+            + ", aligning " + seconds(avgAligning) + " | " + pieces + " game pieces handled";
+    }
+
+    private static String seconds(double value) {
+        return (Double.isNaN(value) ? "-" : String.format("%.2fs", value));
+    }
+}
@@ -1,33 +1,37 @@
 package com.WPILogParser;
 
-import edu.wpi.first.util.datalog.DataLogReader;
-import edu.wpi.first.util.datalog.DataLogRecord;
-
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.*;
+import org.apache.poi.xssf.streaming.*;
 import org.apache.poi.xssf.usermodel.*;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.officeDocument.x2006.customProperties.CTProperty;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.*;
 
 // ****************************************************************************************
@@ -57,51 +61,179 @@ public final class PrintLogSimplified {
         OUTCOME;
     }
 
+    private static final String[] ANALYSIS_HEADERS = new String[] {"Timestamp", "Period", "M_Time", "ID", "Entry", "Type", "Value", "Value_RAW", "Piece", "Action", "T/Val", "Cycle", "Outcome"};
+    private static final String[] FILTER_VALUES = new String[] {"Time to intake", "Time spent aligning", "In to out", "Time spent strafing", "Time spent climbing", "Elevator homed/zeroed", "Slow toggle"};
+
+    // Number of rows the streaming workbooks keep in memory before flushing them to a temp file
+    private static final int ROW_ACCESS_WINDOW = 200;
+
+    // Bump EXTRACTOR_VERSION whenever a change to the entry handlers would put different events in the table, and
+    // ANALYZER_VERSION whenever the derived metrics or the workbook layout change.  Every analysis workbook is stamped with
+    // the hash of the log it came from and both versions, so an out of date workbook is regenerated on the next run - from
+    // the cached event table, unless the extractor version moved too.  The event rules are part of the extractor, so their
+    // fingerprint goes alongside its version.
+    private static final int EXTRACTOR_VERSION = 3;
+    private static final int ANALYZER_VERSION = 3;
+    private static final String STAMP_PROPERTY = "WPILogParser";
+
+    // How often a log being followed is checked for growth, and how long it can go without growing before we stop waiting
+    // for the match to end
+    private static final long TAIL_POLL_MILLIS = 250;
+    private static final long TAIL_IDLE_MILLIS = 10000;
+
+    // Output paths handed out so far in this run, and the hash of the log each went to - so two logs in the same batch that
+    // map to the same name don't both write to it
+    private static final Map<String, String> claimedOutputs = new ConcurrentHashMap<>();
+
+    // Handles the data records for one entry.  Handlers are picked once, by entry name, when the entry's start record is
+    // seen - so the per-record work is an array lookup by entry ID rather than a string compare against every name we know.
+    @FunctionalInterface
+    private interface EntryHandler {
+        void handle(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry);
+    }
+
+    // Handler for entries we have no interest in; data records for these are skipped outright
+    private static final EntryHandler IGNORE = (state, record, entry) -> { };
+
+    // The event rules in use - the ones that ship in the jar unless -rules names another file
+    private static volatile EventRules rules = EventRules.loadDefault();
+
+    // Whether time spans and the summary go into the workbook as formulas (-formulas) rather than the values themselves
+    private static volatile boolean writeFormulas = false;
+
+    // The formats the outputs are written in (-format) - the workbook is just the default
+    private static volatile boolean writeXlsx = true;
+    private static volatile boolean writeCsv = false;
+
+    // Numeric entries kept whole (for the match) as signals in the event table, so the derived metrics can look up their
+    // value at the time of any event - whether or not the entry's records make rows of their own
+    private static final String ELEVATOR_OFFSET = "/RealOutputs/Elevator/Offset";
+    private static final List<String> SIGNAL_ENTRIES = List.of(ELEVATOR_OFFSET);
+
+    // Everything the analysis needs to carry from one record to the next
+    private static final class AnalysisState {
+        final EventTable table;
+        final EventRules rules = PrintLogSimplified.rules;
+        MatchState match = new MatchState();
+
+        // both indexed by entry ID - an entry that has no start record yet has a null handler
+        WPILogRecord.StartRecordData[] entries = new WPILogRecord.StartRecordData[256];
+        EntryHandler[] handlers = new EntryHandler[256];
+
+        AnalysisState(EventTable table) {
+            this.table = table;
+        }
+
+        void addEntry(WPILogRecord.StartRecordData entry) {
+            if (entry.entry >= handlers.length) {
+                int capacity = Math.max(entry.entry + 1, handlers.length * 2);
+                entries = Arrays.copyOf(entries, capacity);
+                handlers = Arrays.copyOf(handlers, capacity);
+            }
+            entries[entry.entry] = entry;
+            EventRules.Table ruleTable = rules.forEntry(entry.name);
+            int kind = EventRules.valueKind(entry.type);
+            handlers[entry.entry] = (ruleTable != null && kind != EventRules.UNSUPPORTED ? ruleHandler(ruleTable, kind) : getEntryHandler(entry.name));
+            if (SIGNAL_ENTRIES.contains(entry.name)) {
+                handlers[entry.entry] = sampled(table.addSignal(entry.name), entry.type, handlers[entry.entry]);
+            }
+        }
+
+        EntryHandler getHandler(int id) {
+            return (id >= 0 && id < handlers.length ? handlers[id] : null);
+        }
+    }
+
     public static void main(String[] args) {
         boolean enableMonitoring = (args.length > 0 && args[0].toLowerCase().equals("-monitor"));
         if (enableMonitoring) {
-            // just monitor the input folder for new logs
-            Path folder = Paths.get("./input");
-
-            try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-                folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
-
-                System.out.println("Monitoring folder: " + folder.toAbsolutePath());
-
-                while (true) {
-                    WatchKey key = watchService.take();
-
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        WatchEvent.Kind<?> kind = event.kind();
-
-                        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                            Path filename = (Path) event.context();
-                            Path filePath = folder.resolve(filename);
-                            if (filePath.toAbsolutePath().toString().toLowerCase().endsWith(".wpilog")) {
-                                while (!isFileCompletelyWritten(filePath)) {
-                                    System.out.println("File " + filePath + " is still being written...");
-                                    Thread.sleep(500);
-                                }
-                                processLogs(new String[] { filePath.toAbsolutePath().toString() });
-                            }
-                        }
-                    }
-
-                    // Reset the key to receive further watch events
-                    boolean valid = key.reset();
-                    if (!valid) {
-                        System.out.println("Watch key no longer valid, exiting...");
-                        break;
-                    }
-                }
+            // just monitor the input folder for new logs - each is processed on its own worker as it arrives
+            Options options = parseOptions(Arrays.copyOfRange(args, 1, args.length));
+            if (!applyOptions(options)) return;
+            LogMonitor monitor = new LogMonitor(Paths.get("./input"), options.threads, filePath -> monitorLog(filePath, options.rawDump));
+            try {
+                monitor.run();
             } catch (IOException | InterruptedException e) {
                 e.printStackTrace();
             }
+        } else if (args.length > 0 && args[0].toLowerCase().equals("-stats")) {
+            // averages across every match processed so far, from the match store - no logs are read
+            String groupBy = (args.length > 1 ? args[1].toLowerCase() : MatchStore.BY_MATCH);
+            if (!List.of(MatchStore.BY_MATCH, MatchStore.BY_PERIOD, MatchStore.BY_PIECE).contains(groupBy)) {
+                System.err.println("-stats can be grouped by match, period or piece, not '" + groupBy + "'");
+                return;
+            }
+            MatchStore.printStats(groupBy, System.out, System.err);
+        } else if (args.length > 1 && args[0].toLowerCase().equals("-tail")) {
+            if (!tailLog(args[1])) {
+                System.out.println("No match end in " + args[1] + " - processing it as it stands");
+                processLogs(new String[] { args[1] });
+            }
         } else {
             processLogs(args);
         }
     }
 
+    // What the monitor does with each new log.  One that's still being copied in is followed, so the analysis is there as
+    // soon as the match in it ends; either way, once the log is complete it's processed as usual, which stamps and caches
+    // the workbook (and makes the raw dump, if asked for).  Console output from a log is printed in one go, so logs being
+    // processed side by side don't get their lines mixed up - only the live progress lines come out as they happen.
+    private static void monitorLog(Path filePath, boolean rawDump) {
+        String logFilePath = filePath.toAbsolutePath().toString();
+        if (!isFileCompletelyWritten(filePath)) {
+            tailLog(logFilePath);
+        }
+
+        // Workers are cheap to park, so rather than a fixed half second between checks this starts quick and backs off
+        long wait = 50;
+        boolean reported = false;
+        while (!isFileCompletelyWritten(filePath)) {
+            if (!reported) {
+                System.out.println("File " + filePath + " is still being written...");
+                reported = true;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            wait = Math.min(wait * 2, 1000);
+        }
+
+        LogResult result = processLog(logFilePath, rawDump);
+        synchronized (System.out) {
+            System.out.println(filePath);
+            System.out.print(result.out);
+            System.err.print(result.err);
+        }
+        // the monitor never finishes a run as such, so each log gets a metrics file of its own
+        StageMetrics.write(filePath.getFileName().toString(), 1, result.metrics.elapsedNanos(), List.of(result.metrics));
+    }
+
+    // Follows a log as it's written, printing the match as it goes, and writes its analysis workbook the moment the match
+    // ends.  That workbook isn't stamped - the log can't be hashed until it's finished - so the next ordinary run over the
+    // finished log replaces it with a stamped (and cached) one.  Returns false if the match never ended, or the analysis
+    // couldn't be written live.
+    private static boolean tailLog(String logFilePath) {
+        String outputFilePath = getOutputFilePath(logFilePath);
+        if (readStamp(outputFilePath + ".xlsx") != null) {
+            // a finished log's output is already there - leave it be until this log can be hashed and compared
+            System.out.println("Output already exists for " + outputFilePath + ".xlsx - waiting for " + logFilePath + " to finish");
+            return false;
+        }
+
+        System.out.println("Following " + logFilePath);
+        String name = Paths.get(logFilePath).getFileName().toString();
+        StageMetrics metrics = new StageMetrics(logFilePath);
+        LiveAnalysisSink sink = new LiveAnalysisSink(name, outputFilePath, metrics, System.out, System.err);
+        boolean success = new LogPipeline(List.of(sink), true, metrics).follow(logFilePath, TAIL_POLL_MILLIS, TAIL_IDLE_MILLIS, sink::report, System.err);
+        metrics.success = success;
+        metrics.finish();
+        StageMetrics.write("tail_" + name, 1, metrics.elapsedNanos(), List.of(metrics));
+        return success;
+    }
+
     private static boolean isFileCompletelyWritten(Path path) {
         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
             FileLock lock = channel.tryLock(0, Long.MAX_VALUE, true);
@@ -117,217 +249,642 @@ public final class PrintLogSimplified {
         return false;
     }
 
+    // The options that can come ahead of the log paths on the command line
+    private static final class Options {
+        boolean rawDump = false;
+        boolean formulas = false;
+        boolean xlsx = true;
+        boolean csv = false;
+        String rulesPath = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String[] paths;
+    }
+
+    private static Options parseOptions(String[] args) {
+        Options options = new Options();
+        int argIndex = 0;
+        for (; argIndex < args.length; argIndex++) {
+            if (args[argIndex].toLowerCase().equals("-raw")) {
+                options.rawDump = true;
+            } else if (args[argIndex].toLowerCase().equals("-format") && argIndex + 1 < args.length) {
+                String formats = args[++argIndex].toLowerCase();
+                boolean xlsx = false, csv = false;
+                for (String format : formats.split(",")) {
+                    if (format.equals("xlsx")) {
+                        xlsx = true;
+                    } else if (format.equals("csv")) {
+                        csv = true;
+                    } else {
+                        System.err.println("WARNING: unknown output format '" + format + "' - expected xlsx or csv");
+                    }
+                }
+                if (xlsx || csv) {
+                    options.xlsx = xlsx;
+                    options.csv = csv;
+                }
+            } else if (args[argIndex].toLowerCase().equals("-formulas")) {
+                options.formulas = true;
+            } else if (args[argIndex].toLowerCase().equals("-rules") && argIndex + 1 < args.length) {
+                options.rulesPath = args[++argIndex];
+            } else if (args[argIndex].toLowerCase().equals("-threads") && argIndex + 1 < args.length) {
+                try {
+                    options.threads = Math.max(1, Integer.parseInt(args[++argIndex]));
+                } catch (NumberFormatException ex) {
+                    System.err.println("WARNING: -threads expects a number, ignoring '" + args[argIndex] + "'");
+                }
+            } else {
+                break;
+            }
+        }
+        options.paths = Arrays.copyOfRange(args, argIndex, args.length);
+        return options;
+    }
+
+    // Puts the options that apply to every log in place, switching to the rules file given with -rules if there was one;
+    // false if that can't be used
+    private static boolean applyOptions(Options options) {
+        writeFormulas = options.formulas;
+        writeXlsx = options.xlsx;
+        writeCsv = options.csv;
+        if (options.rulesPath == null) return true;
+        try {
+            rules = EventRules.load(Paths.get(options.rulesPath));
+            System.out.println("Using event rules from " + options.rulesPath);
+            return true;
+        } catch (IOException ex) {
+            System.err.println("ERROR: could not load event rules: " + ex.getMessage());
+            return false;
+        }
+    }
+
     private static void processLogs(String []args) {
-        boolean generateRawDump = (args.length > 0 && args[0].toLowerCase().equals("-raw"));
-        String[] finalArgs = (generateRawDump ? Arrays.copyOfRange(args, 1, args.length) : args);
+        Options options = parseOptions(args);
+        if (!applyOptions(options)) return;
+        boolean generateRawDump = options.rawDump;
+        int threads = options.threads;
 
-        List<String> filePaths = getFilePaths(finalArgs);
+        List<String> filePaths = getFilePaths(options.paths);
         if (filePaths.size() == 0) {
             System.err.println("Either provide one or more paths to log files on the command line or place files in the 'input' folder.");
             return;
         }
 
+        // Each log is decoded and written on its own worker.  A worker's console output is captured and only printed once
+        // that log (and every log ahead of it) is finished, so the console reads in file order no matter which finishes first.
+        long runStart = System.nanoTime();
+        int workers = Math.min(threads, filePaths.size());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<LogResult>> results = new ArrayList<>();
         for (String logFilePath : filePaths) {
-            if (generateRawDump) dumpRawLog(logFilePath);
-
-            if (!logFilePath.endsWith(".wpilog")) { continue; }
-
-            String outputFilePath = getOutputFilePath(logFilePath);
+            results.add(pool.submit(() -> processLog(logFilePath, generateRawDump)));
+        }
+        pool.shutdown();
 
-            File file = new File(outputFilePath + ".xlsx");
-            if (file.exists()) {
-                System.out.println("Output already exists for " + logFilePath);
+        int failed = 0;
+        List<StageMetrics> metrics = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            System.out.println("[" + (i + 1) + "/" + results.size() + "] " + filePaths.get(i));
+            LogResult result;
+            try {
+                result = results.get(i).get();
+            } catch (InterruptedException | ExecutionException ex) {
+                System.err.println("ERROR: " + filePaths.get(i) + " could not be processed: " + ex.getMessage());
+                failed++;
                 continue;
             }
+            System.out.print(result.out);
+            System.err.print(result.err);
+            metrics.add(result.metrics);
+            if (!result.success) failed++;
+        }
+        if (results.size() > 1) {
+            System.out.println((results.size() - failed) + " of " + results.size() + " logs processed successfully (" + workers + " workers)");
+        }
+        Path metricsPath = StageMetrics.write("run", workers, System.nanoTime() - runStart, metrics);
+        if (metricsPath != null) System.out.println("Stage timings written to " + metricsPath);
+    }
 
-            System.out.println("Processing " + logFilePath);
+    // The console output from processing one log, held until it's that log's turn to print
+    private static final class LogResult {
+        boolean success;
+        StageMetrics metrics;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    }
+
+    private static LogResult processLog(String logFilePath, boolean generateRawDump) {
+        LogResult result = new LogResult();
+        PrintStream out = new PrintStream(result.out, true);
+        PrintStream err = new PrintStream(result.err, true);
+        result.metrics = new StageMetrics(logFilePath);
+        try {
+            result.success = processLog(logFilePath, generateRawDump, result.metrics, out, err);
+        } catch (RuntimeException ex) {
+            // one bad log shouldn't take the rest of the batch down with it
+            err.println("ERROR: failed processing " + logFilePath + ": " + ex);
+            ex.printStackTrace(err);
+            result.success = false;
+        }
+        result.metrics.success = result.success;
+        result.metrics.finish();
+        return result;
+    }
 
-            DataLogReader reader;
+    private static boolean processLog(String logFilePath, boolean generateRawDump, StageMetrics metrics, PrintStream out, PrintStream err) {
+        boolean isLog = logFilePath.endsWith(".wpilog");
+        String outputFilePath = getOutputFilePath(logFilePath);
+        String hash = null;
+        if (isLog) {
+            metrics.start(StageMetrics.HASH);
             try {
-                reader = new DataLogReader(logFilePath);
+                hash = LogCache.hash(logFilePath);
             } catch (IOException ex) {
-                System.err.println("ERROR: could not open file: " + ex.getMessage());
-                return;
-            }
-            if (!reader.isValid()) {
-                System.err.println("ERROR: not a log file");
-                return;
+                err.println("ERROR: could not open file: " + ex.getMessage());
+                return false;
+            } finally {
+                metrics.stop(StageMetrics.HASH);
             }
+            outputFilePath = claimOutputFilePath(outputFilePath, hash, out);
+        }
 
-            XSSFWorkbook workbook = new XSSFWorkbook();
-            XSSFSheet sheet = workbook.createSheet("data");
-            String[] headers = new String[] {"Timestamp", "Period", "M_Time", "ID", "Entry", "Type", "Value", "Value_RAW", "Piece", "Action", "T/Val", "Cycle", "Outcome"};
-            int rowIndex = addOutputHeader(sheet, 0, headers);
+        // Every output wanted for this log is a sink on the one pipeline, so the log is only read and decoded once
+        // however many outputs there are.
+        List<LogSink> sinks = new ArrayList<>();
+        if (generateRawDump) {
+            out.println("Processing log (RAW) " + logFilePath);
+            if (writeXlsx) sinks.add(new RawDumpSink(new SheetTableWriter(outputFilePath + ".RAW.xlsx"), metrics, out, err));
+            if (writeCsv) {
+                try {
+                    sinks.add(new RawDumpSink(new CsvTableWriter(outputFilePath + ".RAW.csv"), metrics, out, err));
+                } catch (IOException ex) {
+                    err.println("ERROR: could not create " + outputFilePath + ".RAW.csv: " + ex.getMessage());
+                }
+            }
+        }
 
-            int records = 0;
-            long timestamp = -1;
-            String matchPeriod = "";
-            double matchTime = 0.0;
-            boolean auto = false;
-            Map<Integer, DataLogRecord.StartRecordData> entries = new HashMap<>();
-            try {
-                for (DataLogRecord record : reader) {
-                    // Keeping track of how many records we're processing - this is only used for console output to inform the user.
-                    if (timestamp != record.getTimestamp()) {
-                        records++;
-                        timestamp = record.getTimestamp();
-                    }
-                    // The wpilog spec allows for other record types, but our logs only seem to carry start and data records.
-                    if (record.isStart()) {
-                        try {
-                            DataLogRecord.StartRecordData data = record.getStartData();
-                            entries.put(data.entry, data);
-                        } catch (InputMismatchException ex) {
-                            System.err.println("WARNING: Start(INVALID)");
-                        }
-                    } else {
-                        DataLogRecord.StartRecordData entry = entries.get(record.getEntry());
-                        if (entry == null) {
-                            System.err.println("WARNING: <ID not found: " + record.getEntry() + ">");
-                            continue;
-                        }
+        if (isLog) {
+            String extractor = EXTRACTOR_VERSION + "-" + rules.getFingerprint();
+            String stamp = hash + "/" + extractor + "." + ANALYZER_VERSION + (writeFormulas ? "f" : "");
+            String cacheKey = hash + "-" + extractor;
+            String existing = readStamp(outputFilePath + ".xlsx");
+            // only the workbook carries a stamp, so without one there's no telling whether the other formats are current -
+            // they're just written again, from the event cache.  With a current workbook the CSVs are taken to be current
+            // too, as long as they're there.
+            boolean current = writeXlsx && stamp.equals(existing);
+            if (current && writeCsv && !(new File(outputFilePath + ".csv").exists() && new File(outputFilePath + ".summary.csv").exists())) {
+                out.println("CSV output for " + logFilePath + " is missing - regenerating");
+                current = false;
+            }
+            if (current && !MatchStore.contains(hash, stamp)) {
+                // the workbook is up to date but the match store doesn't have this match (the store is newer, or was
+                // cleared) - the cached events are all it needs; failing that the log has to be processed again anyway
+                metrics.start(StageMetrics.CACHE_LOAD);
+                EventTable cached = LogCache.load(cacheKey);
+                metrics.stop(StageMetrics.CACHE_LOAD);
+                if (cached != null) {
+                    metrics.start(StageMetrics.DERIVED_METRICS);
+                    addDerivedMetrics(cached);
+                    metrics.stop(StageMetrics.DERIVED_METRICS);
+                    storeMatch(hash, stamp, outputFilePath, cached, metrics, out, err);
+                } else {
+                    out.println("Output for " + logFilePath + " is missing from the match store - regenerating");
+                    current = false;
+                }
+            }
 
-                        if (entry.name.equals("/DriverStation/Autonomous")) auto = record.getBoolean();
-                        if (entry.name.equals("/DriverStation/MatchTime")) matchTime = record.getDouble();                        
-                        matchPeriod = updateMatchPeriod(matchPeriod, auto, record, entry);
-                        
-                        if (matchPeriod.equals("teleop")) {
-                            // this ensures we're only analyzing teleop - we could || "auto" to also look at auto
-                            rowIndex = outputEntriesOfInterest(sheet, rowIndex, matchPeriod, matchTime, record, entry);
-                        } else if (entry.name.equals("/DriverStation/Enabled") && matchPeriod.equals("match end")) {
-                            // once we've reached match end, output a final row - all entries after this will get skipped
-                            addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, matchPeriod);
-                        }
-                    }
+            if (current) {
+                out.println("Output already exists for " + logFilePath);
+            } else {
+                if (!stamp.equals(existing) && new File(outputFilePath + ".xlsx").exists()) {
+                    out.println("Output for " + logFilePath + " is out of date - regenerating");
+                }
+                out.println("Processing " + logFilePath);
+
+                // if nothing else needs the log decoded, a cached event table lets us skip reading it altogether
+                EventTable cached = null;
+                if (sinks.isEmpty()) {
+                    metrics.start(StageMetrics.CACHE_LOAD);
+                    cached = LogCache.load(cacheKey);
+                    metrics.stop(StageMetrics.CACHE_LOAD);
+                }
+                if (cached != null) {
+                    int maxRow = writeAnalysis(cached, outputFilePath, stamp, metrics, out, err);
+                    storeMatch(hash, stamp, outputFilePath, cached, metrics, out, err);
+                    out.println("Events read from cache [" + maxRow + " rows in output]");
+                    return true;
                 }
-            } catch (IllegalArgumentException ex) {
-                System.err.println("WARNING: IllegalArgumentException (might be fine - check the output)");
+                sinks.add(new AnalysisSink(outputFilePath, hash, cacheKey, stamp, metrics, out, err));
             }
+        }
 
-            addCycleTimes(sheet);
-            addIntakeTimes(sheet);
-            addStrafingTimes(sheet);
-            addIntakeToOuttakeTimes(sheet);
-            addAlignTimes(sheet);
-            addPieceLabels(sheet);
-            addElevatorHoming(sheet);
-            addClimbTimes(sheet);
+        if (sinks.isEmpty()) { return true; }
+        return new LogPipeline(sinks, true, metrics).run(logFilePath, err);
+    }
 
-            formatOutput(workbook, sheet);
-            int maxRow = sheet.getLastRowNum() + 1;
+    // Adds a match's measurements to the match store, once the derived metrics have been run over its events.  The match
+    // is known by its output file's name, which is unique by the time it gets here (see claimOutputFilePath).
+    private static void storeMatch(String hash, String stamp, String outputFilePath, EventTable table, StageMetrics metrics, PrintStream out, PrintStream err) {
+        String match = outputFilePath.substring(Math.max(outputFilePath.lastIndexOf('\\'), outputFilePath.lastIndexOf('/')) + 1);
+        metrics.start(StageMetrics.MATCH_STORE);
+        try {
+            MatchStore.add(hash, stamp, match, table);
+            out.println("Match store updated: " + match);
+        } catch (IOException ex) {
+            err.println("WARNING: could not add " + match + " to the match store: " + ex.getMessage());
+        }
+        metrics.stop(StageMetrics.MATCH_STORE);
+    }
 
-            addSummaryAnalysis(sheet);
+    // Where a log's outputs go.  The name only comes from the akit_ file name pattern, so two logs can map to the same one -
+    // if the existing output (or one already handed out this run) was made from a different log, this log gets the start
+    // of its hash added to the name instead of silently overwriting the other.
+    private static String claimOutputFilePath(String outputFilePath, String hash, PrintStream out) {
+        String existing = readStamp(outputFilePath + ".xlsx");
+        boolean ours = (existing == null || existing.startsWith(hash + "/"));
+        if (ours) {
+            String claimed = claimedOutputs.putIfAbsent(outputFilePath, hash);
+            if (claimed == null || claimed.equals(hash)) return outputFilePath;
+        }
 
-            try (FileOutputStream fileOut = new FileOutputStream(outputFilePath + ".xlsx")) {
-                workbook.write(fileOut);
-                workbook.close();
-                System.out.println("Excel file created successfully: " + outputFilePath + ".xlsx");
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        String alternate = outputFilePath + "_" + hash.substring(0, 8);
+        out.println("WARNING: " + outputFilePath + ".xlsx belongs to a different log - using " + alternate + ".xlsx");
+        claimedOutputs.putIfAbsent(alternate, hash);
+        return alternate;
+    }
 
-            System.out.println(records + " records processed [" + maxRow + " rows in output]");
+    // The stamp written into an analysis workbook, or null if there's no workbook (or it predates stamping)
+    private static String readStamp(String xlsxFilePath) {
+        File file = new File(xlsxFilePath);
+        if (!file.isFile()) return null;
+        OPCPackage pkg = null;
+        try {
+            // only the document properties part is read - not the sheet
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            POIXMLProperties properties = new POIXMLProperties(pkg);
+            CTProperty property = properties.getCustomProperties().getProperty(STAMP_PROPERTY);
+            return (property != null ? property.getLpwstr() : null);
+        } catch (IOException | OpenXML4JException | XmlException | RuntimeException ex) {
+            return null;
+        } finally {
+            if (pkg != null) pkg.revert();
         }
+    }
+
+    // Runs the analysis over an event table and writes it out in each format asked for - the workbook stamped unless stamp
+    // is null; returns the number of rows in the output
+    static int writeAnalysis(EventTable table, String outputFilePath, String stamp, PrintStream out, PrintStream err) {
+        return writeAnalysis(table, outputFilePath, stamp, new StageMetrics(outputFilePath), out, err);
+    }
 
-        // this should not be necessary, but if monitoring is enabled, because DataLogReader doesn't properly close and dispose of the file handle, we need to encourage garbage collection to dispose of the handle
-        System.gc(); 
+    static int writeAnalysis(EventTable table, String outputFilePath, String stamp, StageMetrics metrics, PrintStream out, PrintStream err) {
+        metrics.start(StageMetrics.DERIVED_METRICS);
+        addDerivedMetrics(table);
+        metrics.stop(StageMetrics.DERIVED_METRICS);
+        metrics.start(StageMetrics.SUMMARY);
+        MatchSummary summary = MatchSummary.of(table);
+        metrics.stop(StageMetrics.SUMMARY);
+
+        if (writeXlsx) writeWorkbook(table, summary, outputFilePath, stamp, metrics, out, err);
+        if (writeCsv) {
+            metrics.start(StageMetrics.CSV_WRITE);
+            writeAnalysisCsv(table, summary, outputFilePath, out, err);
+            metrics.stop(StageMetrics.CSV_WRITE);
+        }
+        out.println("Summary: " + summary);
+        metrics.rows = table.size + 1;
+        return table.size + 1;
+    }
+
+    private static void writeWorkbook(EventTable table, MatchSummary summary, String outputFilePath, String stamp, StageMetrics metrics, PrintStream out, PrintStream err) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        if (stamp != null) {
+            workbook.getXSSFWorkbook().getProperties().getCustomProperties().addProperty(STAMP_PROPERTY, stamp);
+        }
+        SXSSFSheet sheet = workbook.createSheet("data");
+        boolean formulas = writeFormulas;
+        metrics.start(StageMetrics.FORMAT_OUTPUT);
+        formatOutput(workbook, sheet, table, formulas);
+        addSummaryAnalysis(sheet, table.size, summary, formulas);
+        metrics.stop(StageMetrics.FORMAT_OUTPUT);
+
+        metrics.start(StageMetrics.WORKBOOK_WRITE);
+        try (FileOutputStream fileOut = new FileOutputStream(outputFilePath + ".xlsx")) {
+            workbook.write(fileOut);
+            out.println("Excel file created successfully: " + outputFilePath + ".xlsx");
+        } catch (IOException e) {
+            e.printStackTrace(err);
+        } finally {
+            closeWorkbook(workbook);
+            metrics.stop(StageMetrics.WORKBOOK_WRITE);
+        }
+    }
+
+    // The event table as CSV - every row, with the same columns as the workbook, as plain values - and the summary next to
+    // it in <output>.summary.csv
+    private static void writeAnalysisCsv(EventTable table, MatchSummary summary, String outputFilePath, PrintStream out, PrintStream err) {
+        TableWriter writer = null;
         try {
-            Thread.sleep(100); // Let GC settle
-        } catch (InterruptedException e) {
-            // Ignore
-        }
-    }
-
-    private static int outputEntriesOfInterest(XSSFSheet sheet, int rowIndex, String matchPeriod, double matchTime, DataLogRecord record, DataLogRecord.StartRecordData entry) {
-        if(entry.name.equals("/RealOutputs/EE/Has Coral")) {
-            if(record.getBoolean()) {
-                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "intake done");
-            }
-        }
-
-        // autodrive to target; 90 = right; 270 = left; 180 = algae; 0 = station; -1 = no button pressed
-        if(entry.name.equals("/DriverStation/Joystick0/POVs")) {
-            long[] vals = record.getIntegerArray();
-            if(vals.length > 0) {
-                String alignStr = "";
-                if(vals[0] == 0) {
-                    alignStr = "align station";
-                } else if(vals[0] == 90) {
-                    alignStr = "align right";
-                } else if(vals[0] == 180) {
-                    alignStr = "align algae";
-                } else if(vals[0] == 270) {
-                    alignStr = "align left";
-                } else if(vals[0] == -1) {
-                    alignStr = "(align release)";
-                }
-                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, alignStr, vals[0]);
+            writer = new CsvTableWriter(outputFilePath + ".csv");
+            writer.row(ANALYSIS_HEADERS);
+            for (int r = 0; r < table.size; r++) {
+                writeAnalysisRow(writer, table, r);
+            }
+            finishTable(writer, "", out, err);
+
+            writer = new CsvTableWriter(outputFilePath + ".summary.csv");
+            writer.row("Metric", "Value");
+            double[] values = summary.values();
+            for (int i = 0; i < values.length; i++) {
+                writer.text(MatchSummary.LABELS[i]);
+                writer.number(values[i]);
+                writer.endRow();
             }
+            finishTable(writer, " (summary)", out, err);
+        } catch (IOException ex) {
+            err.println("ERROR: could not create " + (writer == null ? outputFilePath + ".csv" : outputFilePath + ".summary.csv") + ": " + ex.getMessage());
         }
+    }
 
-        if(entry.name.equals("/RealOutputs/Align/Error/IsAligned") || entry.name.equals("/RealOutputs/Align/Error/IsAlignedTest")) {
-            String aligned = (record.getBoolean() ? "Aligned" : "Not aligned");
-            Row row = addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.valueOf(record.getBoolean()));
-            // setCellValue(row, COLUMN.ACTION, aligned);
+    // One row of the event table as plain values, for the formats other than the workbook
+    private static void writeAnalysisRow(TableWriter writer, EventTable table, int r) {
+        double matchTime = table.matchTimes[r];
+        writer.number(table.timestamps[r] / 1000000.0);
+        writer.text(table.string(table.periods[r]));
+        writer.text(String.format("%02d:%02d", (int)matchTime / 60, (int)matchTime % 60));
+        writer.number(table.entryId(r));
+        writer.text(table.entryName(r));
+        writer.text(table.entryType(r));
+        writer.text(table.string(table.values[r]));
+        writer.number(table.valuesRaw[r]);
+        writer.text(table.pieces[r] > 0 ? "Piece " + table.pieces[r] : "");
+        writer.text(table.string(table.actions[r]));
+        writer.number(MatchSummary.actionValue(table, r));
+        writer.number(table.cycleStarts[r] != EventTable.NONE ? table.seconds(table.cycleStarts[r], r) : Double.NaN);
+        writer.text(table.string(table.outcomes[r]));
+        writer.endRow();
+    }
+
+    // Pulls the events of interest out of a log into an event table, picking each entry's handler as its start record
+    // goes by.  Package-private so the benchmarks can drive extraction on its own.
+    static class EventSink implements LogSink {
+        final EventTable table = new EventTable();
+        private final AnalysisState state = new AnalysisState(table);
+        final StageMetrics metrics;     // null if the handlers aren't being timed
+        private int dispatched = 0;
+        private long dispatchNanos = 0;
+
+        EventSink() {
+            this(null);
+        }
+
+        EventSink(StageMetrics metrics) {
+            this.metrics = metrics;
         }
 
-        // 16 = intake, 32 = outtake, 1 = slow toggle
-        // (This is actually a bitmask, but unless they press two buttons at once, we can just check the int values for simplicity.  If we do ever use the bitmask: 0 A, 1 B, 2 X, 3 Y, 4 LBump, 5 RBump, 6 Back, 7 Start, 8 LStick, 9 RStick.
-        if(entry.name.equals("/DriverStation/Joystick0/ButtonValues")) {
-            long button = record.getInteger();
-            if (button == 16 || button == 32) {
-                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, (button == 16 ? "intake" : "outtake"), button);
-            } else if (button == 1) {
-                Row row = addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "SLOW TOGGLE", button);
-                setCellValue(row, COLUMN.ACTION, "Slow toggle");
+        @Override
+        public void start(WPILogRecord.StartRecordData entry) {
+            state.addEntry(entry);
+        }
+
+        @Override
+        public void data(MatchState match, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+            // The vast majority of records (odometry, swerve states, etc.) are for entries we never look at - the
+            // handler for those is IGNORE, so they cost one array lookup and nothing more.
+            EntryHandler handler = state.getHandler(record.getEntry());
+            if (handler == null || handler == IGNORE) return;
+            state.match = match;
+            if (metrics == null) {
+                handler.handle(state, record, entry);
+                return;
             }
+            long start = System.nanoTime();
+            handler.handle(state, record, entry);
+            dispatchNanos += System.nanoTime() - start;
+            dispatched++;
         }
 
-        // /2 - strafe left; /3 - strafe right
-        if(entry.name.equals("/DriverStation/Joystick0/AxisValues")) {
-            float[] axisValues = record.getFloatArray();
-            if(axisValues.length >= 4 && (axisValues[2] > 0.0 || axisValues[3] > 0.0)) {
-                if (axisValues[2] > 0.0) {
-                    addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "<- strafe", axisValues[2]);
-                } else {
-                    addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "strafe ->", axisValues[3]);
-                }
+        @Override
+        public boolean finish(int records) {
+            if (metrics != null) metrics.add(StageMetrics.DISPATCH, dispatched, dispatchNanos);
+            return true;
+        }
+    }
+
+    // Builds the analysis workbook.  Events of interest are gathered into a columnar table first so the derived metrics can
+    // look backwards; only once they're complete do we stream them out to the workbook, which keeps just a window of rows
+    // on the heap.
+    private static final class AnalysisSink extends EventSink {
+        private final String outputFilePath;
+        private final String hash;
+        private final String cacheKey;
+        private final String stamp;
+        private final PrintStream out;
+        private final PrintStream err;
+
+        AnalysisSink(String outputFilePath, String hash, String cacheKey, String stamp, StageMetrics metrics, PrintStream out, PrintStream err) {
+            super(metrics);
+            this.outputFilePath = outputFilePath;
+            this.hash = hash;
+            this.cacheKey = cacheKey;
+            this.stamp = stamp;
+            this.out = out;
+            this.err = err;
+        }
+
+        @Override
+        public boolean finish(int records) {
+            super.finish(records);
+            // cached before the analysis runs, so a later analyzer change can start again from just the extracted events
+            metrics.start(StageMetrics.CACHE_STORE);
+            try {
+                LogCache.store(cacheKey, table);
+            } catch (IOException ex) {
+                err.println("WARNING: could not cache events: " + ex.getMessage());
             }
+            metrics.stop(StageMetrics.CACHE_STORE);
+
+            int maxRow = writeAnalysis(table, outputFilePath, stamp, metrics, out, err);
+            storeMatch(hash, stamp, outputFilePath, table, metrics, out, err);
+
+            out.println(records + " records processed [" + maxRow + " rows in output]");
+            return true;
+        }
+    }
+
+    // The analysis workbook for a log that's being followed as it's written.  Between batches of records it reports the match
+    // so far - the period, and the cycle and intake times as the events behind them arrive (the same spans the derived
+    // metrics measure: outtake to outtake, and first intake press to having the piece).  The workbook itself is written at
+    // match end, from the events gathered by then.
+    private static final class LiveAnalysisSink extends EventSink {
+        private final String name;
+        private final String outputFilePath;
+        private final PrintStream out;
+        private final PrintStream err;
+        private MatchState match = new MatchState();
+
+        private int reportedRows = 0;
+        private String reportedPeriod = "";
+        private int scored = 0;
+        private int intakes = 0;
+        private long lastOuttake = -1;
+        private long intakeStart = -1;
+        private double lastCycle = Double.NaN;
+        private double lastIntake = Double.NaN;
+
+        LiveAnalysisSink(String name, String outputFilePath, StageMetrics metrics, PrintStream out, PrintStream err) {
+            super(metrics);
+            this.name = name;
+            this.outputFilePath = outputFilePath;
+            this.out = out;
+            this.err = err;
         }
 
-        // climb; 180 = deploy; 0 = retract 
-        if(entry.name.equals("/DriverStation/Joystick1/POVs")) {
-            long[] vals = record.getIntegerArray();
-            if(vals.length > 0 && (vals[0] == 0 || vals[0] == 180)) {
-                String alignStr = "";
-                if(vals[0] == 0) {
-                    alignStr = "climb retract";
-                } else if(vals[0] == 180) {
-                    alignStr = "climb deploy";
+        @Override
+        public void data(MatchState match, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+            this.match = match;
+            super.data(match, record, entry);
+        }
+
+        // Prints a line whenever the period changes or another piece is picked up or scored - tagged with the log's name, as
+        // the monitor can be following more than one log at once
+        void report() {
+            boolean changed = !match.period.equals(reportedPeriod);
+            int intake = table.code("intake");
+            int intakeDone = table.code("intake done");
+            int outtake = table.code("outtake");
+            for (int r = reportedRows; r < table.size; r++) {
+                int value = table.values[r];
+                if (value == outtake) {
+                    if (lastOuttake >= 0) lastCycle = (table.timestamps[r] - lastOuttake) / 1000000.0;
+                    lastOuttake = table.timestamps[r];
+                    scored++;
+                    changed = true;
+                } else if (value == intake && intakeStart < 0) {
+                    intakeStart = table.timestamps[r];
+                } else if (value == intakeDone && intakeStart >= 0) {
+                    lastIntake = (table.timestamps[r] - intakeStart) / 1000000.0;
+                    intakeStart = -1;
+                    intakes++;
+                    changed = true;
                 }
-                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, alignStr, vals[0]);
             }
-        }
+            reportedRows = table.size;
+            reportedPeriod = match.period;
 
-        // 128 = home elevator
-        // (this is actually a bitmask, but unless they press two buttons at once, we can just check the int values for simplicity)
-        if(entry.name.equals("/DriverStation/Joystick1/ButtonValues")) {
-            long button = record.getInteger();
-            if (button == 128) {
-                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "ELEV HOME", button);
+            if (changed && match.period.length() > 0) {
+                out.println(String.format("  %s %-9s M_Time %5.1f | %d intakes (last %s) | %d scored (last cycle %s)", name, match.period, match.matchTime,
+                    intakes, seconds(lastIntake), scored, seconds(lastCycle)));
             }
         }
 
-        // could monitor for joystick1 axisvalues, but easier to just monitor the offset - this might be an issue if we comment out logging for elevator offset (joystick axisvalues is lower layer)
-        if(entry.name.equals("/RealOutputs/Elevator/Offset")) {
-            addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, "ELEV OFFSET", record.getDouble());
+        private static String seconds(double value) {
+            return (Double.isNaN(value) ? "-" : String.format("%.2fs", value));
+        }
+
+        @Override
+        public boolean finish(int records) {
+            super.finish(records);
+            report();
+            int maxRow = writeAnalysis(table, outputFilePath, null, metrics, out, err);
+            out.println(records + " records processed by match end [" + maxRow + " rows in output]");
+            return true;
+        }
+    }
+
+    // Handlers for the entries that need more than the event rules can express
+    private static EntryHandler getEntryHandler(String name) {
+        return switch (name) {
+            case "/DriverStation/Enabled" -> PrintLogSimplified::outputEnabled;
+            // this ensures we're only analyzing teleop - we could also allow "auto" in teleopOnly() to look at auto
+            case "/RealOutputs/Align/Error/IsAligned", "/RealOutputs/Align/Error/IsAlignedTest" -> teleopOnly(PrintLogSimplified::outputAligned);
+            case "/DriverStation/Joystick0/AxisValues" -> teleopOnly(PrintLogSimplified::outputDriverAxes);
+            case ELEVATOR_OFFSET -> teleopOnly(PrintLogSimplified::outputElevatorOffset);
+            case "/RealOutputs/Arm/Mode", "/RealOutputs/Elevator Mode" -> teleopOnly(PrintLogSimplified::outputMode);
+            default -> IGNORE;
+        };
+    }
+
+    // Records every value of a numeric entry in the match into its signal, ahead of the entry's own handler.  Only the match
+    // is kept so that a read of just the match window (see LogIndex) records exactly the same samples.
+    private static EntryHandler sampled(Signal signal, String type, EntryHandler handler) {
+        return switch (type) {
+            case "double" -> (state, record, entry) -> {
+                if (state.match.inMatch()) signal.add(record.getTimestamp(), record.getDouble());
+                handler.handle(state, record, entry);
+            };
+            case "float" -> (state, record, entry) -> {
+                if (state.match.inMatch()) signal.add(record.getTimestamp(), record.getFloat());
+                handler.handle(state, record, entry);
+            };
+            case "int64" -> (state, record, entry) -> {
+                if (state.match.inMatch()) signal.add(record.getTimestamp(), record.getInteger());
+                handler.handle(state, record, entry);
+            };
+            case "boolean" -> (state, record, entry) -> {
+                if (state.match.inMatch()) signal.add(record.getTimestamp(), record.getBoolean() ? 1 : 0);
+                handler.handle(state, record, entry);
+            };
+            default -> handler;
+        };
+    }
+
+    // Handler for an entry that has event rules (see EventRules and event-rules.txt).  The rules see every record, so edges
+    // are found across period changes, but - like the handlers above - only make events in teleop.  The arrays the rules
+    // keep their state in are allocated here, once per entry, so a record costs no allocation however many rules it hits.
+    private static EntryHandler ruleHandler(EventRules.Table rules, int kind) {
+        boolean[] held = new boolean[rules.size()];
+        int[] fired = new int[rules.size()];
+        return (state, record, entry) -> {
+            int count = rules.evaluate(record, kind, held, fired);
+            if (count == 0 || !state.match.period.equals("teleop")) return;
+            for (int i = 0; i < count; i++) {
+                int rule = fired[i];
+                int row = addOutputRow(state, record, entry, rules.label(rule), rules.value(record, kind, rule));
+                if (rules.action(rule) != null) state.table.actions[row] = state.table.intern(rules.action(rule));
+            }
+        };
+    }
+
+    private static EntryHandler teleopOnly(EntryHandler handler) {
+        return (state, record, entry) -> {
+            if (state.match.period.equals("teleop")) handler.handle(state, record, entry);
+        };
+    }
+
+    private static void outputEnabled(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+        // the pipeline has already moved the match period along for this record
+        if (state.match.period.equals("match end")) {
+            // once we've reached match end, output a final row - all entries after this will get skipped
+            addOutputRow(state, record, entry, state.match.period);
         }
+    }
+
+    private static void outputAligned(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+        String aligned = (record.getBoolean() ? "Aligned" : "Not aligned");
+        int row = addOutputRow(state, record, entry, String.valueOf(record.getBoolean()));
+        // state.table.actions[row] = state.table.intern(aligned);
+    }
 
-        if(entry.name.equals("/RealOutputs/Arm/Mode") || entry.name.equals("/RealOutputs/Elevator Mode")) {
-            addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, record.getString().toUpperCase());
+    // /2 - strafe left; /3 - strafe right
+    private static void outputDriverAxes(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+        float[] axisValues = record.getFloatArray();
+        if(axisValues.length >= 4 && (axisValues[2] > 0.0 || axisValues[3] > 0.0)) {
+            if (axisValues[2] > 0.0) {
+                addOutputRow(state, record, entry, "<- strafe", axisValues[2]);
+            } else {
+                addOutputRow(state, record, entry, "strafe ->", axisValues[3]);
+            }
         }
+    }
+
+    // could monitor for joystick1 axisvalues, but easier to just monitor the offset - this might be an issue if we comment out logging for elevator offset (joystick axisvalues is lower layer)
+    private static void outputElevatorOffset(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+        addOutputRow(state, record, entry, "ELEV OFFSET", record.getDouble());
+    }
 
-        return rowIndex;
+    private static void outputMode(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+        addOutputRow(state, record, entry, record.getString().toUpperCase());
     }
 
     private static String getOutputFilePath(String logFilePath) {
@@ -359,7 +916,8 @@ public final class PrintLogSimplified {
                 File[] files = inputFolder.listFiles();
                 if (files != null) {
                     for (File file : files) {
-                        if (file.isFile()) {
+                        // skip the index files we leave beside the logs
+                        if (file.isFile() && !file.getName().endsWith(LogIndex.SUFFIX)) {
                             filePaths.add(file.getAbsolutePath());
                         }
                     }
@@ -369,18 +927,12 @@ public final class PrintLogSimplified {
         return filePaths;
     }
 
-    private static String updateMatchPeriod(String matchPeriod, boolean auto, DataLogRecord record, DataLogRecord.StartRecordData entry) {
-        // Once the robot is connected to the FMS, autonomous will be TRUE and enabled will be FALSE.  So, once we see enabled go TRUE while auto is TRUE, we know the Auto period has begun.  After Auto period, there will be a momentary (~2 seconds) Disabled period.  When enabled goes TRUE again, Teleop period has begun - autonomous will be false, but we don't need to check that as we're watching for the transition from Disabled period.
-        if(entry.name.equals("/DriverStation/Enabled") && record.getBoolean() && auto) {
-            matchPeriod = "auto";
-        } else if (entry.name.equals("/DriverStation/Enabled") && !record.getBoolean() && matchPeriod.equals("auto")) {
-            matchPeriod = "disabled";
-        } else if (entry.name.equals("/DriverStation/Enabled") && record.getBoolean() && matchPeriod.equals("disabled")) {
-            matchPeriod = "teleop";
-        } else if (entry.name.equals("/DriverStation/Enabled") && !record.getBoolean() && matchPeriod.equals("teleop")) {
-            matchPeriod = "match end";
-        }
-        return matchPeriod;
+    private static int addOutputRow(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry, String valueStr) {
+        return addOutputRow(state, record, entry, valueStr, Double.NaN);
+    }
+
+    private static int addOutputRow(AnalysisState state, WPILogRecord record, WPILogRecord.StartRecordData entry, String valueStr, double valueRaw) {
+        return state.table.add(record.getTimestamp(), state.match.period, state.match.matchTime, record.getEntry(), entry.name, entry.type, valueStr, valueRaw);
     }
 
     private static int addOutputHeader(Sheet sheet, int rowIndex, String... values) {
@@ -391,203 +943,176 @@ public final class PrintLogSimplified {
         return row.getRowNum();
     }
 
-    private static Row addOutputRow(Sheet sheet, int rowIndex, String matchPeriod, double matchTime, DataLogRecord record, DataLogRecord.StartRecordData entry, String valueStr) {
-        return addOutputRow(sheet, rowIndex, matchPeriod, matchTime, record, entry, valueStr, Double.MIN_VALUE);
+    // Flags describing what kind of label a value code is, worked out once per distinct string rather than once per row
+    private static final int LABEL_STRAFE = 1;
+    private static final int LABEL_ALIGN = 2;          // starts with "align"
+    private static final int LABEL_MENTIONS_ALIGN = 4; // "align" anywhere, e.g. "(align release)"
+    private static final int LABEL_ALGAE = 8;          // ends with "algae"
+    private static final int LABEL_CLIMB = 16;
+
+    private static int[] getLabelFlags(EventTable table) {
+        int[] flags = new int[table.stringCount()];
+        for (int code = 0; code < flags.length; code++) {
+            String label = table.string(code);
+            if (label.contains("strafe")) flags[code] |= LABEL_STRAFE;
+            if (label.startsWith("align")) flags[code] |= LABEL_ALIGN;
+            if (label.contains("align")) flags[code] |= LABEL_MENTIONS_ALIGN;
+            if (label.endsWith("algae")) flags[code] |= LABEL_ALGAE;
+            if (label.startsWith("climb")) flags[code] |= LABEL_CLIMB;
+        }
+        return flags;
     }
 
-    private static Row addOutputRow(Sheet sheet, int rowIndex, String matchPeriod, double matchTime, DataLogRecord record, DataLogRecord.StartRecordData entry, String valueStr, double valueRaw) {
-        Row row = sheet.createRow(rowIndex);
-        setCellValue(row, COLUMN.TIMESTAMP, record.getTimestamp() / 1000000.0);
-        setCellValue(row, COLUMN.MATCHPERIOD, matchPeriod);
-        setCellValue(row, COLUMN.MATCHTIME, matchTime);
-        setCellValue(row, COLUMN.MATCHTIME, String.format("%02d:%02d", (int)matchTime / 60, (int)matchTime % 60));
-        setCellValue(row, COLUMN.ID, record.getEntry());
-        setCellValue(row, COLUMN.ENTRY, entry.name);
-        setCellValue(row, COLUMN.DATATYPE, entry.type);
-        setCellValue(row, COLUMN.VALUE, valueStr);
-        if (Math.abs(valueRaw) != Double.MIN_VALUE)
-            setCellValue(row, COLUMN.VALUERAW, valueRaw);
+    // All of the derived metrics, computed together in one walk over the event table.  Each section below keeps its own
+    // state and behaves exactly as if it had made its own pass; they only ever write to disjoint rows (the final row is the
+    // one exception, and climbing is deliberately last so it wins there, as it always has).  Homing and climbing actions
+    // don't count towards piece labels.
+    static void addDerivedMetrics(EventTable table) {
+        if (table.size == 0) return;
+
+        int[] flags = getLabelFlags(table);
+        int intake = table.code("intake");
+        int intakeDone = table.code("intake done");
+        int outtake = table.code("outtake");
+        int alignRelease = table.code("(align release)");
+        int elevHome = table.code("ELEV HOME");
+
+        int timeToIntake = table.intern("Time to intake");
+        int timeStrafing = table.intern("Time spent strafing");
+        int inToOut = table.intern("In to out");
+        int timeAligning = table.intern("Time spent aligning");
+        int elevHomed = table.intern("Elevator homed/zeroed");
+        int timeClimbing = table.intern("Time spent climbing");
+
+        int cycleStart = EventTable.NONE;
+        int intakeStart = EventTable.NONE;
+        int strafeStart = EventTable.NONE, strafeEnd = EventTable.NONE;
+        int inToOutStart = EventTable.NONE;
+        String pieceType = "";
+        String level = "";
+        int alignStart = EventTable.NONE, alignEnd = EventTable.NONE;
+        Signal elevatorOffset = table.signal(ELEVATOR_OFFSET);
+        Signal.Cursor offsetAt = (elevatorOffset != null ? elevatorOffset.cursor() : null);
+        double firstTimestamp = table.timestamps[0] / 1000000.0;
+        int climbStart = EventTable.NONE, climbEnd = EventTable.NONE;
+        // rows given an action by the cycle/intake/strafe/in-to-out/align metrics - the ones that get a piece label
+        boolean[] pieceEvents = new boolean[table.size];
+
+        int lastRow = table.size - 1;
+        for (int r = 0; r <= lastRow; r++) {
+            int value = table.values[r];
+            int flag = (value < flags.length ? flags[value] : 0);
+            String entryName = table.entryName(r);
+            boolean isModeEntry = entryName.equals("/RealOutputs/Arm/Mode") || entryName.equals("/RealOutputs/Elevator Mode");
+
+            // cycle times - outtake to outtake
+            if (value == outtake) {
+                if (cycleStart != EventTable.NONE) {
+                    table.cycleStarts[r] = cycleStart;
+                }
+                cycleStart = r;
+            }
 
-        return row; 
-    }
+            // intake times - intake button to piece acquired
+            if (value == intake && intakeStart == EventTable.NONE) {
+                intakeStart = r;
+            } else if (value == intakeDone && intakeStart != EventTable.NONE) {
+                setActionSpan(table, r, timeToIntake, intakeStart);
+                pieceEvents[r] = true;
+                intakeStart = EventTable.NONE;
+            }
 
-    private static void addCycleTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int startRow = 0;
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if(getCellString(row, COLUMN.VALUE) == "outtake") {
-                if(startRow > 0) {
-                    setCellFormula(row, COLUMN.CYCLETIME, "A" + r + "-A" + startRow);
-                }
-                startRow = r;
+            // strafing times - first strafe to last strafe before the next intake/outtake
+            if ((flag & LABEL_STRAFE) != 0 && strafeStart == EventTable.NONE) {
+                strafeStart = r;
+            } else if ((value == intakeDone || value == outtake) && strafeStart != EventTable.NONE && strafeEnd > strafeStart) {
+                setActionSpan(table, strafeEnd, timeStrafing, strafeStart);
+                pieceEvents[strafeEnd] = true;
+                strafeStart = EventTable.NONE;
+                strafeEnd = EventTable.NONE;
+            } else if ((flag & LABEL_STRAFE) != 0) {
+                strafeEnd = r;
             }
-        }
-    }
 
-    private static void addIntakeTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int startRow = 0;
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if(getCellString(row, COLUMN.VALUE) == "intake" && startRow == 0) {
-                startRow = r;
+            // intake to outtake times, along with what was scored
+            if ((flag & LABEL_ALGAE) != 0) {
+                pieceType = "ALGAE";
+            } else if ((flag & LABEL_ALIGN) != 0) {
+                pieceType = "CORAL";
+            } else if (entryName.equals("/RealOutputs/Arm/Mode")) {
+                level = table.string(value);
             }
-            else if(getCellString(row, COLUMN.VALUE) == "intake done" && startRow > 0) {
-                setCellValue(row, COLUMN.ACTION, "Time to intake");
-                setCellFormula(row, COLUMN.ACTIONDATA, "A" + r + "-A" + startRow);
-                startRow = 0;
+            if (value == intake) {
+                inToOutStart = EventTable.NONE;
+            } else if (value == intakeDone && inToOutStart == EventTable.NONE) {
+                inToOutStart = r;
+            } else if (value == outtake && inToOutStart != EventTable.NONE) {
+                setActionSpan(table, r, inToOut, inToOutStart);
+                pieceEvents[r] = true;
+                String outcome = pieceType;
+                if (pieceType.equals("CORAL") && level.length() > 0) outcome += " " + level;
+                table.outcomes[r] = table.intern(outcome);
+                inToOutStart = EventTable.NONE;
             }
-        }
-    }
 
-    private static void addStrafingTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int startRow = 0;
-        int endRow = 0;
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if(getCellString(row, COLUMN.VALUE).contains("strafe") && startRow == 0) {
-                startRow = r;
-            } else if((getCellString(row, COLUMN.VALUE) == "intake done" || getCellString(row, COLUMN.VALUE) == "outtake") && startRow > 0 && endRow > startRow) {
-                Row row2 = sheet.getRow(endRow - 1);
-                setCellValue(row2, COLUMN.ACTION, "Time spent strafing");
-                setCellFormula(row2, COLUMN.ACTIONDATA, "A" + endRow + "-A" + startRow);
-                startRow = 0;
-                endRow = 0;
-            } else if (getCellString(row, COLUMN.VALUE).contains("strafe")) {
-                endRow = r;
-            }
-        }
-    }
-
-    private static void addIntakeToOuttakeTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int startRow = 0;
-        String piece = "";
-        String level = "";
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if (getCellString(row, COLUMN.VALUE).endsWith("algae")) {
-                piece = "ALGAE";
-            } else if (getCellString(row, COLUMN.VALUE).startsWith("align")) {
-                piece = "CORAL";
-            } else if (getCellString(row, COLUMN.ENTRY).equals("/RealOutputs/Arm/Mode")) {
-                level = getCellString(row, COLUMN.VALUE);
-            }
-            if (getCellString(row, COLUMN.VALUE) == "intake") {
-                startRow = 0;
-            } else if(getCellString(row, COLUMN.VALUE) == "intake done" && startRow == 0) {
-                startRow = r;
-            } else if (getCellString(row, COLUMN.VALUE) == "outtake" && startRow > 0) {
-                setCellValue(row, COLUMN.ACTION, "In to out");
-                setCellFormula(row, COLUMN.ACTIONDATA, "A" + r + "-A" + startRow);
-                String outcome = piece;
-                if (piece.equals("CORAL") && level.length() > 0) outcome += " " + level;
-                setCellValue(row, COLUMN.OUTCOME, outcome);
-                startRow = 0;
-            }
-        }
-    }
-
-    private static void addAlignTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int startRow = 0;
-        int endRow = 0;
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if(!(getCellString(row, COLUMN.ENTRY).equals("/RealOutputs/Arm/Mode") || getCellString(row, COLUMN.ENTRY).equals("/RealOutputs/Elevator Mode"))) {
-                if(getCellString(row, COLUMN.VALUE).startsWith("align") && startRow == 0) {
-                    startRow = r;
-                }
-                else if(getCellString(row, COLUMN.VALUE).startsWith("align") && endRow > startRow) {
-                    endRow = 0;
-                } else if (!getCellString(row, COLUMN.VALUE).contains("align") && startRow > 0 && endRow > startRow) {
-                    Row row2 = sheet.getRow(endRow - 1);
-                    setCellValue(row2, COLUMN.ACTION, "Time spent aligning");
-                    setCellFormula(row2, COLUMN.ACTIONDATA, "A" + endRow + "-A" + startRow);
-                    startRow = 0;
-                    endRow = 0;
-                } else if (getCellString(row, COLUMN.VALUE) == "(align release)") {
-                    endRow = r;
+            // align times - first align request to the release that ends the sequence
+            if (!isModeEntry) {
+                if ((flag & LABEL_ALIGN) != 0 && alignStart == EventTable.NONE) {
+                    alignStart = r;
+                } else if ((flag & LABEL_ALIGN) != 0 && alignEnd > alignStart) {
+                    alignEnd = EventTable.NONE;
+                } else if ((flag & LABEL_MENTIONS_ALIGN) == 0 && alignStart != EventTable.NONE && alignEnd > alignStart) {
+                    setActionSpan(table, alignEnd, timeAligning, alignStart);
+                    pieceEvents[alignEnd] = true;
+                    alignStart = EventTable.NONE;
+                    alignEnd = EventTable.NONE;
+                } else if (value == alignRelease) {
+                    alignEnd = r;
                 }
             }
-        }
-    }
-
-    private static void addPieceLabels(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        int piece = 1;
 
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if (row.getCell(COLUMN.ACTION.ordinal()) != null && !getCellString(row, COLUMN.VALUE).equals("SLOW TOGGLE")) {
-                setCellValue(row, COLUMN.PIECE, "Piece " + piece);
-                if (getCellString(row, COLUMN.VALUE) == "outtake") piece++;
+            // elevator homing - the offset that was in effect when the elevator got re-zeroed (from just before the press,
+            // as re-zeroing can log the new offset in the same cycle)
+            if (value == elevHome) {
+                double offset = (offsetAt != null ? offsetAt.valueBefore(table.timestamps[r]) : Double.NaN);
+                table.actions[r] = elevHomed;
+                table.actionStarts[r] = EventTable.NONE;
+                table.actionValues[r] = (Double.isNaN(offset) ? 0.0 : offset);
             }
-        }
-    }
-
-    private static void addElevatorHoming(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        double offset = 0.0;
 
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if(getCellString(row, COLUMN.VALUE).equals("ELEV OFFSET")) {
-                double valraw = getCellNumber(row, COLUMN.VALUERAW);
-                if(Math.abs(valraw) > 0.0) {
-                    offset = getCellNumber(row, COLUMN.VALUERAW);
+            // climb times - only considered once we're well into teleop
+            if (table.timestamps[r] / 1000000.0 > firstTimestamp + 60.0) {
+                if ((flag & LABEL_CLIMB) != 0 && climbStart == EventTable.NONE) {
+                    climbStart = r;
+                } else if ((flag & LABEL_CLIMB) == 0 && climbEnd > climbStart) {
+                    setActionSpan(table, climbEnd, timeClimbing, climbStart);
+                    climbStart = EventTable.NONE;
+                    climbEnd = EventTable.NONE;
+                } else if (r == lastRow && climbStart != EventTable.NONE) {
+                    setActionSpan(table, r, timeClimbing, climbStart);
+                    climbStart = EventTable.NONE;
+                    climbEnd = EventTable.NONE;
+                } else if ((flag & LABEL_CLIMB) != 0 && r < lastRow) {
+                    climbEnd = r;
                 }
-            } else if(getCellString(row, COLUMN.VALUE).equals("ELEV HOME")) {
-                setCellValue(row, COLUMN.ACTION, "Elevator homed/zeroed");
-                setCellValue(row, COLUMN.ACTIONDATA, offset);
             }
         }
-    }
 
-    private static void addClimbTimes(Sheet sheet) {
-        int maxRow = sheet.getLastRowNum() + 1;
-        double firstTimestamp = getCellNumber(sheet.getRow(1), COLUMN.TIMESTAMP);
-        int startRow = 0;
-        int endRow = 0;
-        
-        for (int r = 2; r <= maxRow; r++) {
-            Row row = sheet.getRow(r - 1);
-            if (getCellNumber(row, COLUMN.TIMESTAMP) > firstTimestamp + 60.0) {
-                if (getCellString(row, COLUMN.VALUE).startsWith("climb") && startRow == 0) {
-                    startRow = r;
-                } else if ((!getCellString(row, COLUMN.VALUE).startsWith("climb") && endRow > startRow)) {
-                    Row row2 = sheet.getRow(endRow - 1);
-                    setCellValue(row2, COLUMN.ACTION, "Time spent climbing");
-                    setCellFormula(row2, COLUMN.ACTIONDATA, "A" + endRow + "-A" + startRow);
-                    startRow = 0;
-                    endRow = 0;
-                } else if (r == maxRow && startRow > 0) {
-                    setCellValue(row, COLUMN.ACTION, "Time spent climbing");
-                    setCellFormula(row, COLUMN.ACTIONDATA, "A" + r + "-A" + startRow);
-                    startRow = 0;
-                    endRow = 0;
-                } else if (getCellString(row, COLUMN.VALUE).startsWith("climb") && r < maxRow) {
-                    endRow = r;
-                }
+        // Piece labels depend on actions that can land on rows well behind the one being examined, so they have to follow
+        // as their own (cheap, int-only) sweep once the walk above is done.
+        int piece = 1;
+        for (int r = 0; r <= lastRow; r++) {
+            if (pieceEvents[r]) {
+                table.pieces[r] = piece;
+                if (table.values[r] == outtake) piece++;
             }
         }
     }
 
-    private static String getCellString(Row row, COLUMN column) {
-        Cell cell = row.getCell(column.ordinal());
-        return (cell != null ? cell.getStringCellValue() : "");
-    }
-
-    private static double getCellNumber(Row row, COLUMN column) {
-        Cell cell = row.getCell(column.ordinal());
-        return (cell != null ? cell.getNumericCellValue() : 0.0);
+    private static void setActionSpan(EventTable table, int row, int action, int startRow) {
+        table.actions[row] = action;
+        table.actionStarts[row] = startRow;
+        table.actionValues[row] = Double.NaN;
     }
 
     private static void setCellValue(Row row, COLUMN column, String value) {
@@ -605,7 +1130,7 @@ public final class PrintLogSimplified {
         if (cell != null ) cell.setCellFormula(formula);
     }
 
-    private static void formatOutput(XSSFWorkbook workbook, XSSFSheet sheet) {
+    private static void formatOutput(SXSSFWorkbook workbook, SXSSFSheet sheet, EventTable table, boolean formulas) {
         byte[] clr_lightred = new byte[] {(byte)255, (byte)199, (byte)206};
         byte[] clr_darkred = new byte[] {(byte)156, (byte)0, (byte)6};
         byte[] clr_lightyellow = new byte[] {(byte)255, (byte)235, (byte)156};
@@ -622,28 +1147,38 @@ public final class PrintLogSimplified {
         ConditionalFormattingRule alignRule = createConditionalFormattingRule(sheetCF, "align", clr_lightgreen, clr_darkgreen);
         ConditionalFormattingRule outtakeRule = createConditionalFormattingRule(sheetCF, "out", clr_lightblue, clr_darkblue);
 
-        int maxRow = sheet.getLastRowNum() + 1;
+        int maxRow = table.size + 1;
         CellRangeAddress[] regions = {
             CellRangeAddress.valueOf("G1:G" + maxRow),
             CellRangeAddress.valueOf("J1:J" + maxRow)
         };
         sheetCF.addConditionalFormatting(regions, new ConditionalFormattingRule[] { outtakeRule, strafRule, intakeRule, alignRule });
 
+        // Rows are flushed to disk as we go, so styling and filtering have to be decided while each row is written -
+        // there's no going back to a row once it has left the window.
         CellStyle style = workbook.createCellStyle();
         style.setAlignment(HorizontalAlignment.CENTER);
-        for (int i = 0; i < maxRow; i++) {
-            Cell cell = sheet.getRow(i).getCell(COLUMN.VALUE.ordinal());
-            if (cell != null) cell.setCellStyle(style);
-        }
 
         CellStyle cellStyle = workbook.createCellStyle();
         DataFormat dataFormat = workbook.createDataFormat();
         cellStyle.setDataFormat(dataFormat.getFormat("#,##0.00"));
-        for (int i = 1; i < maxRow; i++) {
-            Cell time = sheet.getRow(i).getCell(COLUMN.ACTIONDATA.ordinal());
+
+        addOutputHeader(sheet, 0, ANALYSIS_HEADERS);
+        sheet.getRow(0).getCell(COLUMN.VALUE.ordinal()).setCellStyle(style);
+
+        List<String> filterValues = Arrays.asList(FILTER_VALUES);
+        for (int r = 0; r < table.size; r++) {
+            Row row = writeOutputRow(sheet, r + 1, table, r, formulas);
+            row.getCell(COLUMN.VALUE.ordinal()).setCellStyle(style);
+
+            Cell time = row.getCell(COLUMN.ACTIONDATA.ordinal());
             if (time != null) time.setCellStyle(cellStyle);
-            Cell cycle = sheet.getRow(i).getCell(COLUMN.CYCLETIME.ordinal());
+            Cell cycle = row.getCell(COLUMN.CYCLETIME.ordinal());
             if (cycle != null) cycle.setCellStyle(cellStyle);
+
+            if (!filterValues.contains(table.string(table.actions[r]))) {
+                row.setZeroHeight(true);
+            }
         }
 
         sheet.setColumnWidth(COLUMN.TIMESTAMP.ordinal(), 11 * 256);
@@ -662,7 +1197,44 @@ public final class PrintLogSimplified {
 
         sheet.createFreezePane(0, 1);
         
-        convertToTable(workbook, sheet);
+        convertToTable(workbook, sheet, maxRow - 1);
+    }
+
+    // Renders one row of the event table.  Time spans are written as values, or - with -formulas - as formulas against the
+    // timestamp column, so the sheet shows where each number came from (at the cost of the workbook working them all out
+    // every time it's opened).
+    private static Row writeOutputRow(Sheet sheet, int rowIndex, EventTable table, int r, boolean formulas) {
+        Row row = sheet.createRow(rowIndex);
+        double matchTime = table.matchTimes[r];
+        setCellValue(row, COLUMN.TIMESTAMP, table.timestamps[r] / 1000000.0);
+        setCellValue(row, COLUMN.MATCHPERIOD, table.string(table.periods[r]));
+        setCellValue(row, COLUMN.MATCHTIME, String.format("%02d:%02d", (int)matchTime / 60, (int)matchTime % 60));
+        setCellValue(row, COLUMN.ID, table.entryId(r));
+        setCellValue(row, COLUMN.ENTRY, table.entryName(r));
+        setCellValue(row, COLUMN.DATATYPE, table.entryType(r));
+        setCellValue(row, COLUMN.VALUE, table.string(table.values[r]));
+        if (!Double.isNaN(table.valuesRaw[r])) setCellValue(row, COLUMN.VALUERAW, table.valuesRaw[r]);
+        if (table.pieces[r] > 0) setCellValue(row, COLUMN.PIECE, "Piece " + table.pieces[r]);
+        if (table.actions[r] != EventTable.NONE) setCellValue(row, COLUMN.ACTION, table.string(table.actions[r]));
+        if (table.actionStarts[r] != EventTable.NONE && formulas) {
+            setCellFormula(row, COLUMN.ACTIONDATA, timeSpanFormula(rowIndex, table.actionStarts[r] + 1));
+        } else if (!Double.isNaN(MatchSummary.actionValue(table, r))) {
+            setCellValue(row, COLUMN.ACTIONDATA, MatchSummary.actionValue(table, r));
+        }
+        if (table.cycleStarts[r] != EventTable.NONE) {
+            if (formulas) {
+                setCellFormula(row, COLUMN.CYCLETIME, timeSpanFormula(rowIndex, table.cycleStarts[r] + 1));
+            } else {
+                setCellValue(row, COLUMN.CYCLETIME, table.seconds(table.cycleStarts[r], r));
+            }
+        }
+        if (table.outcomes[r] != EventTable.NONE) setCellValue(row, COLUMN.OUTCOME, table.string(table.outcomes[r]));
+        return row;
+    }
+
+    private static String timeSpanFormula(int endRowIndex, int startRowIndex) {
+        // sheet row indexes are zero-based, but cell references are one-based
+        return "A" + (endRowIndex + 1) + "-A" + (startRowIndex + 1);
     }
 
     private static ConditionalFormattingRule createConditionalFormattingRule(SheetConditionalFormatting sheetCF, String textToMatch, byte[] backgroundColor, byte[] foregroundColor) {
@@ -674,16 +1246,21 @@ public final class PrintLogSimplified {
         return rule;
     }
 
-    private static void convertToTable(XSSFWorkbook workbook, XSSFSheet sheet) {
-        int lastRow = sheet.getLastRowNum();
-        int lastCol = sheet.getRow(0).getLastCellNum() - 1;
+    private static void convertToTable(SXSSFWorkbook workbook, SXSSFSheet sheet, int lastRow) {
+        int lastCol = ANALYSIS_HEADERS.length - 1;
 
         CellReference topLeft = new CellReference(0, 0);
         CellReference bottomRight = new CellReference(lastRow, lastCol);
         AreaReference area = new AreaReference(topLeft, bottomRight, workbook.getSpreadsheetVersion());
 
-        XSSFTable table = sheet.createTable(area);
+        // The table lives on the underlying XSSF sheet, which never holds the streamed rows - so it can't pick the
+        // column names up from the header row and we have to name them ourselves.
+        XSSFSheet xssfSheet = workbook.getXSSFWorkbook().getSheet(sheet.getSheetName());
+        XSSFTable table = xssfSheet.createTable(area);
         table.setDisplayName("Analysis");
+        for (int i = 0; i <= lastCol; i++) {
+            table.getColumns().get(i).setName(ANALYSIS_HEADERS[i]);
+        }
 
         CTTable ctTable = table.getCTTable();
         CTTableStyleInfo style = ctTable.addNewTableStyleInfo();
@@ -691,11 +1268,11 @@ public final class PrintLogSimplified {
         style.setShowRowStripes(true);
         style.setShowColumnStripes(false);
         
-        filterValues(sheet, COLUMN.ACTION, "Time to intake", "Time spent aligning", "In to out", "Time spent strafing", "Time spent climbing", "Elevator homed/zeroed", "Slow toggle");
+        filterValues(table, COLUMN.ACTION, FILTER_VALUES);
     }
 
-    private static void filterValues(XSSFSheet sheet, COLUMN column, String... filterValues) {
-        XSSFTable table = sheet.getTables().get(0);
+    private static void filterValues(XSSFTable table, COLUMN column, String... filterValues) {
+        // Only the filter definition is set up here; the matching rows are hidden as they're written (see formatOutput).
         CTTable ctTable = table.getCTTable();
         CTAutoFilter filter = ctTable.addNewAutoFilter();
         CTFilterColumn filterColumn = filter.addNewFilterColumn();
@@ -707,147 +1284,218 @@ public final class PrintLogSimplified {
             filterCriteria.setOperator(STFilterOperator.Enum.forInt(1));
             filterCriteria.setVal(filterValue);
         }
+    }
 
-        for (int rowNum = 1; rowNum <= sheet.getLastRowNum(); rowNum++) {
-            XSSFRow row = sheet.getRow(rowNum);
-            if (row != null) {
-                XSSFCell cell = row.getCell(column.ordinal());
-                boolean match = false;
-                if (cell != null) {
-                    String cellValue = cell.getStringCellValue();
-                    for (String filterValue : filterValues) {
-                        if (cellValue.equals(filterValue)) {
-                            match = true;
-                            break;
-                        }
-                    }
-                }
-                if (!match) {
-                    row.getCTRow().setHidden(true);
-                }
-            }
+    // The summary rows under the table - the numbers themselves, worked out in MatchSummary, or with -formulas the formulas
+    // that work them out from the table (an average with nothing to average is left blank, where its formula would show
+    // #DIV/0!)
+    private static void addSummaryAnalysis(Sheet sheet, int maxRow, MatchSummary summary, boolean formulas) {
+        String[] formulaTexts = new String[] {
+            "AVERAGE(L:L)",
+            "AVERAGEIF(J:J, \"Time to intake\", K:K)",
+            "AVERAGEIF(J:J, \"Time spent strafing\", K:K)",
+            "AVERAGEIF(J:J, \"Time spent aligning\", K:K)",
+            "SUMPRODUCT((I2:I" + maxRow + "<>\"\")/COUNTIF(I2:I" + maxRow + ", I2:I" + maxRow + "&\"\"))"
+        };
+        double[] values = summary.values();
+        for (int i = 0; i < values.length; i++) {
+            addSummaryRow(sheet, maxRow + 2 + i, MatchSummary.LABELS[i], formulas, formulaTexts[i], values[i]);
+        }
+    }
+
+    private static void addSummaryRow(Sheet sheet, int rowIndex, String label, boolean formulas, String formula, double value) {
+        Row row = sheet.createRow(rowIndex);
+        row.createCell(0).setCellValue(label);
+        if (formulas) {
+            row.createCell(2).setCellFormula(formula);
+        } else if (!Double.isNaN(value)) {
+            row.createCell(2).setCellValue(value);
         }
     }
 
-    private static void addSummaryAnalysis(XSSFSheet sheet) {
-        int maxRow = sheet.getLastRowNum();
+    private static void closeWorkbook(SXSSFWorkbook workbook) {
+        // SXSSF spills flushed rows to temp files - closing the workbook is what cleans those up
+        try {
+            workbook.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        Row row = sheet.createRow(maxRow + 2);
-        row.createCell(0).setCellValue("Avg Cycle Time");
-        row.createCell(2).setCellFormula("AVERAGE(L:L)");
-        
-        row = sheet.createRow(maxRow + 3);
-        row.createCell(0).setCellValue("Avg Time Spent Intaking");
-        row.createCell(2).setCellFormula("AVERAGEIF(J:J, \"Time to intake\", K:K)");
+    // Dumps every record from the match itself, whatever the entry, to a RAW workbook (or CSV file - one sink per format)
+    private static final class RawDumpSink implements LogSink {
+        private static final String[] HEADERS = new String[] {"Timestamp", "Period", "M_Time", "ID", "Entry", "Type", "Value_RAW"};
+
+        private final TableWriter writer;
+        private final PrintStream out;
+        private final PrintStream err;
+        private final StructRegistry structs = new StructRegistry();
+        private final StageMetrics metrics;
+        private int dumped = 0;
+        private long dumpNanos = 0;
+
+        RawDumpSink(TableWriter writer, StageMetrics metrics, PrintStream out, PrintStream err) {
+            this.writer = writer;
+            this.metrics = metrics;
+            this.out = out;
+            this.err = err;
+            writer.row(HEADERS);
+        }
 
-        row = sheet.createRow(maxRow + 4);
-        row.createCell(0).setCellValue("Avg Time Spent Strafing");
-        row.createCell(2).setCellFormula("AVERAGEIF(J:J, \"Time spent strafing\", K:K)");
+        @Override
+        public void data(MatchState match, WPILogRecord record, WPILogRecord.StartRecordData entry) {
+            // struct schemas are usually logged before the match starts, but the struct values in the match need them
+            if (structs.add(entry, record)) return;
+
+            // The logic below ensures we only dump log for the match itself, not junk before or after while the bot is still powered on.
+            if(match.inMatch() || entry.name.equals("/DriverStation/Enabled")) {
+                long start = System.nanoTime();
+                String matchPeriod = match.period;
+                double matchTime = match.matchTime;
+                // Structs (ChassisSpeeds, Pose2d, Rotation2d, SwerveModulePosition, SwerveModuleState, Transform2d, Translation2d...) are decoded using the schema logged for each type, as field=value pairs.  Protobuf-encoded entries are still skipped.
+                switch (entry.type) {
+                    case "float" -> addRawRow(matchPeriod, matchTime, record, entry, String.valueOf(record.getFloat())); 
+                    case "double" -> addRawRow(matchPeriod, matchTime, record, entry, String.valueOf(record.getDouble()));
+                    case "int64" -> addRawRow(matchPeriod, matchTime, record, entry, String.valueOf(record.getInteger()));
+                    case "string", "json" -> addRawRow(matchPeriod, matchTime, record, entry, record.getString());
+                    case "boolean" -> addRawRow(matchPeriod, matchTime, record, entry, String.valueOf(record.getBoolean()));
+                    case "float[]" -> {
+                        String values = Arrays.toString(record.getFloatArray()).replaceAll("[\\[\\] ]", "");
+                        addRawRow(matchPeriod, matchTime, record, entry, values);
+                    }
+                    case "double[]" -> {
+                        String values = Arrays.toString(record.getDoubleArray()).replaceAll("[\\[\\] ]", "");
+                        addRawRow(matchPeriod, matchTime, record, entry, values);
+                    }
+                    case "int64[]" -> {
+                        String values = Arrays.toString(record.getIntegerArray()).replaceAll("[\\[\\] ]", "");
+                        addRawRow(matchPeriod, matchTime, record, entry, values);
+                    }
+                    case "string[]" -> addRawRow(matchPeriod, matchTime, record, entry, String.join(",", record.getStringArray()));
+                    default -> {
+                        StructLayout layout = structs.getLayout(entry.type);
+                        if (layout != null) addRawRow(matchPeriod, matchTime, record, entry, layout.format(record));
+                    }
+                }
+                dumpNanos += System.nanoTime() - start;
+                dumped++;
+            }
+        }
 
-        row = sheet.createRow(maxRow + 5);
-        row.createCell(0).setCellValue("Avg Time Spent Aligning");
-        row.createCell(2).setCellFormula("AVERAGEIF(J:J, \"Time spent aligning\", K:K)");
+        private void addRawRow(String matchPeriod, double matchTime, WPILogRecord record, WPILogRecord.StartRecordData entry, String valueStr) {
+            writer.number(record.getTimestamp() / 1000000.0);
+            writer.text(matchPeriod);
+            writer.text(String.format("%02d:%02d", (int)matchTime / 60, (int)matchTime % 60));
+            writer.number(record.getEntry());
+            writer.text(entry.name);
+            writer.text(entry.type);
+            writer.text(valueStr);
+            writer.endRow();
+        }
 
-        row = sheet.createRow(maxRow + 6);
-        row.createCell(0).setCellValue("Game pieces handled");
-        row.createCell(2).setCellFormula("SUMPRODUCT((I2:I" + maxRow + "<>\"\")/COUNTIF(I2:I" + maxRow + ", I2:I" + maxRow + "&\"\"))");
+        @Override
+        public boolean finish(int records) {
+            metrics.add(StageMetrics.RAW_ROWS, dumped, dumpNanos);
+            metrics.start(StageMetrics.RAW_WRITE);
+            boolean written = finishTable(writer, " (RAW)", out, err);
+            metrics.stop(StageMetrics.RAW_WRITE);
+            out.println(records + " records processed (RAW) [" + writer.getRows() + " rows in output]");
+            return written;
+        }
+
+        @Override
+        public void abort() {
+            writer.abort();
+        }
     }
 
-    private static void dumpRawLog(String logFilePath) {
-        System.out.println("Processing log (RAW) " + logFilePath);
-            
-        DataLogReader reader;
+    // Finishes a TableWriter's output, reporting how that went; false if it couldn't be written
+    private static boolean finishTable(TableWriter writer, String what, PrintStream out, PrintStream err) {
         try {
-            reader = new DataLogReader(logFilePath);
-        } catch (IOException ex) {
-            System.err.println("ERROR: could not open file: " + ex.getMessage());
-            return;
+            writer.finish();
+            out.println(writer.getKind() + what + " created successfully: " + writer.getPath());
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace(err);
+            return false;
         }
-        if (!reader.isValid()) {
-            System.err.println("ERROR: not a log file");
-            return;
+    }
+
+    // A TableWriter that streams rows into a one-sheet workbook, keeping only a window of rows on the heap
+    private static final class SheetTableWriter implements TableWriter {
+        private final String path;
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        private final SXSSFSheet sheet;
+        private Row row = null;
+        private int rows = 0;
+        private int column = 0;
+
+        SheetTableWriter(String path) {
+            this.path = path;
+            workbook.setCompressTempFiles(true);
+            sheet = workbook.createSheet("data");
         }
 
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("data");
-        String[] headers = new String[] {"Timestamp", "Period", "M_Time", "ID", "Entry", "Type", "Value_RAW"};
-        int rowIndex = addOutputHeader(sheet, 0, headers);
+        private Cell nextCell() {
+            if (row == null) row = sheet.createRow(rows);
+            return row.createCell(column++);
+        }
 
-        int records = 0;
-        long timestamp = -1;
-        String matchPeriod = "";
-        double matchTime = 0.0;
-        boolean auto = false;
-        Map<Integer, DataLogRecord.StartRecordData> entries = new HashMap<>();
-        try {
-            for (DataLogRecord record : reader) {
-                if (timestamp != record.getTimestamp()) {
-                    records++;
-                    timestamp = record.getTimestamp();
-                }
-                if (record.isStart()) {
-                    try {
-                        DataLogRecord.StartRecordData data = record.getStartData();
-                        entries.put(data.entry, data);
-                    } catch (InputMismatchException ex) {
-                        System.err.println("WARNING: Start(INVALID)");
-                    }
-                } else {
-                    DataLogRecord.StartRecordData entry = entries.get(record.getEntry());
-                    if (entry == null) {
-                        System.err.println("WARNING: <ID not found: " + record.getEntry() + ">");
-                        continue;
-                    }
+        @Override
+        public void text(String value) {
+            nextCell().setCellValue(value);
+        }
 
-                    if(entry.name.equals("/DriverStation/Autonomous")) auto = record.getBoolean();
-                    matchPeriod = updateMatchPeriod(matchPeriod, auto, record, entry);
-
-                    if (entry.name.equals("/DriverStation/MatchTime")) matchTime = record.getDouble();                        
-
-                    // The logic below ensures we only dump log for the match itself, not junk before or after while the bot is still powered on.
-                    if(matchPeriod.equals("auto") || matchPeriod.equals("disabled") || matchPeriod.equals("teleop") || entry.name.equals("/DriverStation/Enabled")) {
-                        // This does not handle custom structs, which currently includes ChassisSpeeds, Pose2d, Rotation2d, SwerveModulePosition, SwerveModuleState, Transform2d, & Translation2d.  Processing these takes special handling that I haven't yet sussed out.
-                        switch (entry.type) {
-                            case "float" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.valueOf(record.getFloat())); 
-                            case "double" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.valueOf(record.getDouble()));
-                            case "int64" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.valueOf(record.getInteger()));
-                            case "string", "json" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, record.getString());
-                            case "boolean" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.valueOf(record.getBoolean()));
-                            case "float[]" -> {
-                                String values = Arrays.toString(record.getFloatArray()).replaceAll("[\\[\\] ]", "");
-                                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, values);
-                            }
-                            case "double[]" -> {
-                                String values = Arrays.toString(record.getDoubleArray()).replaceAll("[\\[\\] ]", "");
-                                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, values);
-                            }
-                            case "int64[]" -> {
-                                String values = Arrays.toString(record.getIntegerArray()).replaceAll("[\\[\\] ]", "");
-                                addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, values);
-                            }
-                            case "string[]" -> addOutputRow(sheet, ++rowIndex, matchPeriod, matchTime, record, entry, String.join(",", record.getStringArray()));
-                            default -> { }
-                        }
-                    }
-                }
+        @Override
+        public void number(double value) {
+            if (Double.isNaN(value)) {
+                blank();
+            } else {
+                nextCell().setCellValue(value);
             }
-        } catch (IllegalArgumentException ex) {
-            System.err.println("WARNING: IllegalArgumentException (might be fine - check the output)");
         }
 
-        String outputFilePath = getOutputFilePath(logFilePath);
+        @Override
+        public void blank() {
+            column++;
+        }
 
-        int maxRow = sheet.getLastRowNum() + 1;
+        @Override
+        public void endRow() {
+            if (row == null) sheet.createRow(rows);
+            row = null;
+            rows++;
+            column = 0;
+        }
 
-        try (FileOutputStream fileOut = new FileOutputStream(outputFilePath + ".RAW.xlsx")) {
-            workbook.write(fileOut);
-            workbook.close();
-            System.out.println("Excel file (RAW) created successfully: " + outputFilePath + ".RAW.xlsx");
-        } catch (IOException e) {
-            e.printStackTrace();
+        @Override
+        public int getRows() {
+            return rows;
         }
 
-        System.out.println(records + " records processed (RAW) [" + maxRow+ " rows in output]");
+        @Override
+        public String getKind() {
+            return "Excel file";
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try (FileOutputStream fileOut = new FileOutputStream(path)) {
+                workbook.write(fileOut);
+            } finally {
+                closeWorkbook(workbook);
+            }
+        }
+
+        @Override
+        public void abort() {
+            closeWorkbook(workbook);
+        }
     }
 
     private PrintLogSimplified() { }
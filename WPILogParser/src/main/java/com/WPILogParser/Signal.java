@@ -0,0 +1,161 @@
+package com.WPILogParser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// ****************************************************************************************
+// One numeric entry over time, as a pair of primitive arrays - when each value was logged
+// and what it was.  A log only ever tells us when something changed, so to ask what a
+// signal was at some other moment (the elevator offset when home was pressed, say) we look
+// up the sample in effect then: valueAt() holds the last value (zero-order hold, which is
+// what a logged value means), interpolate() draws a straight line between the samples
+// either side.  Both are a binary search, so joining one signal against another costs
+// O(log n) per lookup rather than a scan.
+//
+// A Cursor is for a run of lookups in time order, as when walking the event table: it
+// gallops forward from wherever the last lookup landed, so each lookup costs O(log d) in
+// the distance d moved since the last, and a walk over the whole table is close to linear.
+// ****************************************************************************************
+
+final class Signal {
+    private static final int INITIAL_CAPACITY = 64;
+
+    final String name;
+    int size = 0;
+    long[] timestamps = new long[INITIAL_CAPACITY];
+    double[] values = new double[INITIAL_CAPACITY];
+
+    Signal(String name) {
+        this.name = name;
+    }
+
+    void add(long timestamp, double value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        // an entry's records come in time order; the odd one that doesn't is slotted into place, after any sample with the
+        // same timestamp so the one logged last still wins
+        int index = size;
+        while (index > 0 && timestamps[index - 1] > timestamp) index--;
+        if (index < size) {
+            System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        timestamps[index] = timestamp;
+        values[index] = value;
+        size++;
+    }
+
+    // Index of the last sample at or before timestamp, or -1 if the signal starts after it
+    int indexAt(long timestamp) {
+        return search(0, size, timestamp);
+    }
+
+    // The value in effect at timestamp, or NaN if nothing had been logged yet
+    double valueAt(long timestamp) {
+        return hold(indexAt(timestamp));
+    }
+
+    // The value in effect just before timestamp - what a change logged at that same moment replaced
+    double valueBefore(long timestamp) {
+        return hold(indexAt(timestamp - 1));
+    }
+
+    // The value at timestamp on a straight line between the samples either side; held flat after the last sample, NaN
+    // before the first
+    double interpolate(long timestamp) {
+        return interpolate(indexAt(timestamp), timestamp);
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    final class Cursor {
+        private int index = -1;
+        private long last = Long.MIN_VALUE;
+
+        int indexAt(long timestamp) {
+            if (timestamp < last) {
+                // went backwards - nothing to gallop from
+                index = search(0, size, timestamp);
+            } else {
+                int low = Math.max(index, 0);
+                if (low < size && timestamps[low] <= timestamp) {
+                    // double the step until we overshoot, then binary search the last step
+                    int step = 1;
+                    int high = low + 1;
+                    while (high < size && timestamps[high] <= timestamp) {
+                        low = high;
+                        step *= 2;
+                        high = low + step;
+                    }
+                    index = search(low, Math.min(high, size), timestamp);
+                } else {
+                    index = -1;
+                }
+            }
+            last = timestamp;
+            return index;
+        }
+
+        double valueAt(long timestamp) {
+            return hold(indexAt(timestamp));
+        }
+
+        double valueBefore(long timestamp) {
+            return hold(indexAt(timestamp - 1));
+        }
+
+        double interpolate(long timestamp) {
+            return Signal.this.interpolate(indexAt(timestamp), timestamp);
+        }
+    }
+
+    // Last index in [from, to) whose timestamp is at or before the given one, or from - 1 if there's none
+    private int search(int from, int to, long timestamp) {
+        int low = from, high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private double hold(int index) {
+        return (index < 0 ? Double.NaN : values[index]);
+    }
+
+    private double interpolate(int index, long timestamp) {
+        if (index < 0) return Double.NaN;
+        if (index == size - 1 || timestamps[index] == timestamp) return values[index];
+        double fraction = (double) (timestamp - timestamps[index]) / (timestamps[index + 1] - timestamps[index]);
+        return values[index] + (values[index + 1] - values[index]) * fraction;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(timestamps[i]);
+            out.writeDouble(values[i]);
+        }
+    }
+
+    static Signal read(DataInput in) throws IOException {
+        Signal signal = new Signal(in.readUTF());
+        int count = in.readInt();
+        if (count < 0) throw new IOException("bad signal size " + count);
+        for (int i = 0; i < count; i++) {
+            signal.add(in.readLong(), in.readDouble());
+        }
+        return signal;
+    }
+}
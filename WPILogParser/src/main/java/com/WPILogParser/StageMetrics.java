@@ -0,0 +1,238 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+// ****************************************************************************************
+// Where the time goes on one log - a timer per stage (hashing, opening, decoding, the
+// handlers for the entries we look at, each part of the analysis, each output) and the
+// counters that put those times in context: records and bytes decoded, records with an
+// entry ID that never had a start record, rows written.  Each stage also records how much
+// was allocated on the heap while it ran, where the JVM can tell us (it's per thread, and
+// a log is only ever worked on by the one thread).
+//
+// Stages are timed with start()/stop() around each one.  That's too dear to do per record,
+// so the per-record work is timed by whoever does it (see LogPipeline and the sinks) and
+// added in one go with add().  Every run writes the metrics for all its logs to one JSON
+// file in the ./metrics/ folder.
+// ****************************************************************************************
+
+final class StageMetrics {
+    static final String HASH = "hash";
+    static final String OPEN = "open";
+    static final String READ = "read";                  // decode and dispatch together - the loop over the records
+    static final String DECODE = "decode";              // the read, less the time spent in the sinks below
+    static final String DISPATCH = "dispatch";          // the handlers for entries of interest
+    static final String RAW_ROWS = "raw rows";          // raw dump rows, as the records go by
+    static final String INDEX_WRITE = "index write";
+    static final String CACHE_LOAD = "cache load";
+    static final String CACHE_STORE = "cache store";
+    static final String DERIVED_METRICS = "derived metrics";
+    static final String SUMMARY = "summary";
+    static final String FORMAT_OUTPUT = "formatOutput";
+    static final String WORKBOOK_WRITE = "workbook write";
+    static final String CSV_WRITE = "csv write";
+    static final String RAW_WRITE = "raw write";
+    static final String MATCH_STORE = "match store";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    // One stage's totals; allocated is -1 if it couldn't be measured
+    private static final class Stage {
+        int calls = 0;
+        long nanos = 0;
+        long allocated = 0;
+        long startNanos = -1;
+        long startAllocated = -1;
+    }
+
+    final String log;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private final long startAllocated = allocatedBytes();
+    private long elapsedNanos = -1;
+    private long totalAllocated = -1;
+
+    boolean success = false;
+    long records = 0;          // every record decoded, start records included
+    long timestamps = 0;       // distinct timestamps - the count the console has always shown
+    long bytesRead = 0;        // the records' bytes, headers included
+    long entries = 0;          // start records
+    long unknownRecords = 0;   // data records whose entry ID had no start record
+    final TreeSet<Integer> unknownIds = new TreeSet<>();
+    long rows = 0;             // rows in the analysis output
+
+    StageMetrics(String log) {
+        this.log = log;
+    }
+
+    void start(String stage) {
+        Stage s = stages.computeIfAbsent(stage, name -> new Stage());
+        s.startNanos = System.nanoTime();
+        s.startAllocated = allocatedBytes();
+    }
+
+    void stop(String stage) {
+        Stage s = stages.get(stage);
+        if (s == null || s.startNanos < 0) return;
+        long allocated = allocatedBytes();
+        s.calls++;
+        s.nanos += System.nanoTime() - s.startNanos;
+        s.allocated = (s.allocated < 0 || s.startAllocated < 0 || allocated < 0 ? -1 : s.allocated + allocated - s.startAllocated);
+        s.startNanos = -1;
+    }
+
+    // Time measured elsewhere - allocation isn't known for these
+    void add(String stage, int calls, long nanos) {
+        Stage s = stages.computeIfAbsent(stage, name -> new Stage());
+        s.calls += calls;
+        s.nanos += nanos;
+        s.allocated = -1;
+    }
+
+    long nanos(String stage) {
+        Stage s = stages.get(stage);
+        return (s == null ? 0 : s.nanos);
+    }
+
+    // The log is done with - fixes its total time and allocation, and works out the decode time from the read
+    void finish() {
+        if (elapsedNanos >= 0) return;
+        if (stages.containsKey(READ)) {
+            Stage read = stages.get(READ);
+            add(DECODE, read.calls, Math.max(0, read.nanos - nanos(DISPATCH) - nanos(RAW_ROWS)));
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        long allocated = allocatedBytes();
+        totalAllocated = (allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated);
+    }
+
+    // How long the log took, start to finish
+    long elapsedNanos() {
+        finish();
+        return elapsedNanos;
+    }
+
+    void unknownEntry(int id) {
+        unknownRecords++;
+        unknownIds.add(id);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+        try {
+            if (!allocation.isThreadAllocatedMemorySupported()) return null;
+            if (!allocation.isThreadAllocatedMemoryEnabled()) allocation.setThreadAllocatedMemoryEnabled(true);
+            return allocation;
+        } catch (UnsupportedOperationException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM can't say
+    private static long allocatedBytes() {
+        return (ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes());
+    }
+
+    // Writes a run's metrics to ./metrics/<name>_<time>.json; returns where, or null (having said why) if it couldn't
+    static Path write(String name, int threads, long runNanos, List<StageMetrics> logs) {
+        Path folder = Paths.get(System.getProperty("user.dir"), "metrics");
+        Path path = folder.resolve(name + "_" + LocalDateTime.now().format(FILE_TIME) + ".json");
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"threads\": ").append(threads).append(",\n");
+        json.append("  \"seconds\": ").append(seconds(runNanos)).append(",\n");
+        json.append("  \"logs\": [");
+        for (int i = 0; i < logs.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            logs.get(i).appendJson(json);
+        }
+        json.append("\n  ]\n}\n");
+        try {
+            Files.createDirectories(folder);
+            // written to a temp file and moved into place, so a run's file never turns up half written
+            Path temp = Files.createTempFile(folder, name, ".tmp");
+            try {
+                Files.write(temp, json.toString().getBytes(StandardCharsets.UTF_8));
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return path;
+        } catch (IOException ex) {
+            System.err.println("WARNING: could not write metrics to " + path + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void appendJson(StringBuilder json) {
+        finish();
+        long read = nanos(READ);
+        json.append("    {\n");
+        json.append("      \"log\": ").append(quote(log)).append(",\n");
+        json.append("      \"success\": ").append(success).append(",\n");
+        json.append("      \"seconds\": ").append(seconds(elapsedNanos)).append(",\n");
+        json.append("      \"allocatedBytes\": ").append(bytes(totalAllocated)).append(",\n");
+        json.append("      \"records\": ").append(records).append(",\n");
+        json.append("      \"timestamps\": ").append(timestamps).append(",\n");
+        json.append("      \"bytesRead\": ").append(bytesRead).append(",\n");
+        json.append("      \"recordsPerSecond\": ").append(read > 0 ? String.valueOf(Math.round(records * 1e9 / read)) : "null").append(",\n");
+        json.append("      \"entries\": ").append(entries).append(",\n");
+        json.append("      \"unknownEntryRecords\": ").append(unknownRecords).append(",\n");
+        json.append("      \"unknownEntryIds\": ").append(unknownIds).append(",\n");
+        json.append("      \"rows\": ").append(rows).append(",\n");
+        json.append("      \"stages\": {");
+        boolean first = true;
+        for (Map.Entry<String, Stage> stage : stages.entrySet()) {
+            Stage s = stage.getValue();
+            json.append(first ? "\n" : ",\n");
+            json.append("        ").append(quote(stage.getKey())).append(": { \"calls\": ").append(s.calls)
+                .append(", \"seconds\": ").append(seconds(s.nanos)).append(", \"allocatedBytes\": ").append(bytes(s.allocated)).append(" }");
+            first = false;
+        }
+        json.append("\n      }\n    }");
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    private static String bytes(long bytes) {
+        return (bytes < 0 ? "null" : String.valueOf(bytes));
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
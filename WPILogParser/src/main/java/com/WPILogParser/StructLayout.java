@@ -0,0 +1,212 @@
+package com.WPILogParser;
+
+import java.util.Arrays;
+
+// ****************************************************************************************
+// The fixed layout of one struct type, flattened: every leaf field - nested structs and
+// arrays expanded, e.g. Pose2d is "translation.x", "translation.y" and "rotation.value" -
+// with its byte offset and primitive kind.  StructRegistry builds one per type from the
+// type's schema, once; after that a value is read straight out of the record's payload at
+// the field's offset, with no parsing and nothing allocated.
+//
+// A record of a struct[] type is just values of the struct back to back, so a record holds
+// getCount() elements, each getSize() bytes.  char arrays are strings, and are the one kind
+// of field that doesn't read as a number.
+// ****************************************************************************************
+
+public final class StructLayout {
+    static final byte BOOL = 0;
+    static final byte CHAR = 1;
+    static final byte INT8 = 2;
+    static final byte UINT8 = 3;
+    static final byte INT16 = 4;
+    static final byte UINT16 = 5;
+    static final byte INT32 = 6;
+    static final byte UINT32 = 7;
+    static final byte INT64 = 8;
+    static final byte UINT64 = 9;
+    static final byte FLOAT = 10;
+    static final byte DOUBLE = 11;
+
+    private final String type;
+    private final int size;
+
+    private int fields = 0;
+    private String[] names = new String[8];
+    private byte[] kinds = new byte[8];
+    private int[] offsets = new int[8];
+    private int[] lengths = new int[8];      // bytes the field occupies - for a bit-field, its storage unit
+    private int[] bitShifts = new int[8];
+    private int[] bitWidths = new int[8];    // 0 unless the field is a bit-field
+
+    StructLayout(String type, int size) {
+        this.type = type;
+        this.size = size;
+    }
+
+    // Byte size of a primitive kind
+    static int sizeOf(byte kind) {
+        return switch (kind) {
+            case BOOL, CHAR, INT8, UINT8 -> 1;
+            case INT16, UINT16 -> 2;
+            case INT32, UINT32, FLOAT -> 4;
+            default -> 8;
+        };
+    }
+
+    // The primitive kind for a schema type name, or -1 if it's the name of a struct
+    static byte kindOf(String typeName) {
+        return switch (typeName) {
+            case "bool" -> BOOL;
+            case "char" -> CHAR;
+            case "int8" -> INT8;
+            case "uint8" -> UINT8;
+            case "int16" -> INT16;
+            case "uint16" -> UINT16;
+            case "int32" -> INT32;
+            case "uint32" -> UINT32;
+            case "int64" -> INT64;
+            case "uint64" -> UINT64;
+            case "float", "float32" -> FLOAT;
+            case "double", "float64" -> DOUBLE;
+            default -> -1;
+        };
+    }
+
+    void add(String name, byte kind, int offset, int length, int bitShift, int bitWidth) {
+        if (fields == names.length) {
+            int capacity = fields * 2;
+            names = Arrays.copyOf(names, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            bitShifts = Arrays.copyOf(bitShifts, capacity);
+            bitWidths = Arrays.copyOf(bitWidths, capacity);
+        }
+        names[fields] = name;
+        kinds[fields] = kind;
+        offsets[fields] = offset;
+        lengths[fields] = length;
+        bitShifts[fields] = bitShift;
+        bitWidths[fields] = bitWidth;
+        fields++;
+    }
+
+    // Copies every field of a nested struct in, under the given name and at the given offset
+    void addNested(String name, StructLayout nested, int offset) {
+        for (int i = 0; i < nested.fields; i++) {
+            add(name + "." + nested.names[i], nested.kinds[i], offset + nested.offsets[i], nested.lengths[i], nested.bitShifts[i], nested.bitWidths[i]);
+        }
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    // Bytes per value
+    public int getSize() {
+        return size;
+    }
+
+    public int getFieldCount() {
+        return fields;
+    }
+
+    public String getFieldName(int field) {
+        return names[field];
+    }
+
+    // Index of the field with the given (flattened) name, or -1 if there's no such field
+    public int indexOf(String name) {
+        for (int i = 0; i < fields; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public boolean isString(int field) {
+        return kinds[field] == CHAR && bitWidths[field] == 0;
+    }
+
+    // Number of values in a record - 1 for a plain struct entry, any number for a struct[] one
+    public int getCount(WPILogRecord record) {
+        return (size == 0 ? 0 : record.getSize() / size);
+    }
+
+    // One field of one element, as a double (NaN for a string field)
+    public double getDouble(WPILogRecord record, int element, int field) {
+        int offset = checkElement(record, element) + offsets[field];
+        byte kind = kinds[field];
+        if (bitWidths[field] > 0) {
+            long bits = (record.getPayloadUnsigned(offset, lengths[field]) >>> bitShifts[field]) & ((1L << bitWidths[field]) - 1);
+            boolean signed = (kind == INT8 || kind == INT16 || kind == INT32 || kind == INT64);
+            if (signed && bitWidths[field] < 64 && (bits & (1L << (bitWidths[field] - 1))) != 0) bits |= -1L << bitWidths[field];
+            return (kind == BOOL ? (bits != 0 ? 1 : 0) : bits);
+        }
+        return switch (kind) {
+            case BOOL -> (record.getPayloadByte(offset) != 0 ? 1 : 0);
+            case INT8 -> record.getPayloadByte(offset);
+            case UINT8 -> record.getPayloadByte(offset) & 0xff;
+            case INT16 -> record.getPayloadShort(offset);
+            case UINT16 -> record.getPayloadShort(offset) & 0xffff;
+            case INT32 -> record.getPayloadInt(offset);
+            case UINT32 -> record.getPayloadInt(offset) & 0xffffffffL;
+            case INT64 -> record.getPayloadLong(offset);
+            case UINT64 -> unsigned(record.getPayloadLong(offset));
+            case FLOAT -> record.getPayloadFloat(offset);
+            case DOUBLE -> record.getPayloadDouble(offset);
+            default -> Double.NaN;
+        };
+    }
+
+    // A char array field, trailing NULs dropped
+    public String getString(WPILogRecord record, int element, int field) {
+        int offset = checkElement(record, element) + offsets[field];
+        String value = record.getPayloadString(offset, lengths[field]);
+        int end = value.indexOf('\0');
+        return (end < 0 ? value : value.substring(0, end));
+    }
+
+    // Every numeric field of one element into the given row, in field order (string fields come out as NaN)
+    public void read(WPILogRecord record, int element, double[] row) {
+        for (int i = 0; i < fields; i++) {
+            row[i] = getDouble(record, element, i);
+        }
+    }
+
+    // The whole record as text, e.g. "translation.x=1.5,translation.y=2.0,rotation.value=0.1" - elements of a struct[] are
+    // separated by ';'
+    public String format(WPILogRecord record) {
+        StringBuilder text = new StringBuilder();
+        int count = getCount(record);
+        for (int e = 0; e < count; e++) {
+            if (e > 0) text.append(';');
+            for (int i = 0; i < fields; i++) {
+                if (i > 0) text.append(',');
+                text.append(names[i]).append('=');
+                if (isString(i)) {
+                    text.append(getString(record, e, i));
+                } else if (kinds[i] == BOOL) {
+                    text.append(getDouble(record, e, i) != 0);
+                } else if (kinds[i] == FLOAT || kinds[i] == DOUBLE) {
+                    text.append(getDouble(record, e, i));
+                } else if (kinds[i] == UINT64 && bitWidths[i] == 0) {
+                    text.append(Long.toUnsignedString(record.getPayloadLong(e * size + offsets[i])));
+                } else {
+                    text.append((long) getDouble(record, e, i));
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private int checkElement(WPILogRecord record, int element) {
+        if (element < 0 || element >= getCount(record)) throw new IndexOutOfBoundsException(element);
+        return element * size;
+    }
+
+    private static double unsigned(long value) {
+        double result = (double) (value >>> 1) * 2.0;
+        return result + (value & 1);
+    }
+}
@@ -0,0 +1,154 @@
+package com.WPILogParser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// ****************************************************************************************
+// The struct types a log knows about.  Each struct type used in a log has its schema
+// logged once, as a "structschema" entry named /.schema/struct:<type> whose value is the
+// schema text - e.g. Pose2d's is "Translation2d translation;Rotation2d rotation".  Hand
+// every data record to add() and the schemas are picked out as they go by; getLayout()
+// then compiles a type into a StructLayout the first time it's asked for, and hands back
+// the same one from then on.
+//
+// Schema syntax (WPILib's): declarations separated by ';', each "type name", "type name[n]"
+// for a fixed-size array or "type name:bits" for a bit-field, optionally preceded by an
+// enum spec "enum {a=1, b=2}" (the enum names are dropped - the value reads as a number).
+// Types are bool, char, [u]int8/16/32/64, float/float32, double/float64, or another
+// struct.  Fields are packed with no padding.  Consecutive bit-fields share a storage unit
+// the size of their type, filled from the low bit, until one doesn't fit.
+// ****************************************************************************************
+
+public final class StructRegistry {
+    static final String SCHEMA_PREFIX = "/.schema/struct:";
+    static final String TYPE_PREFIX = "struct:";
+
+    // deep enough for any real schema; stops a (broken) schema that includes itself from recursing forever
+    private static final int MAX_DEPTH = 16;
+
+    private final Map<String, String> schemas = new HashMap<>();
+    // compiled layouts by type name - null for a type that couldn't be compiled (yet)
+    private final Map<String, StructLayout> layouts = new HashMap<>();
+
+    // If the record is a struct schema, remembers it and returns true
+    public boolean add(WPILogRecord.StartRecordData entry, WPILogRecord record) {
+        if (!entry.type.equals("structschema") || !entry.name.startsWith(SCHEMA_PREFIX)) return false;
+        String schema = record.getString();
+        String previous = schemas.put(entry.name.substring(SCHEMA_PREFIX.length()), schema);
+        // a new schema can complete a type that couldn't be compiled before, and a changed one invalidates every type
+        // built on it, so just start over - it's rare and compiling is cheap
+        if (!schema.equals(previous)) layouts.clear();
+        return true;
+    }
+
+    public static boolean isStruct(String entryType) {
+        return entryType.startsWith(TYPE_PREFIX);
+    }
+
+    public static boolean isArray(String entryType) {
+        return entryType.endsWith("[]");
+    }
+
+    // The layout for an entry type such as "struct:Pose2d" or "struct:Pose2d[]", or null if the type isn't a struct or its
+    // schema (or that of a struct inside it) hasn't been seen
+    public StructLayout getLayout(String entryType) {
+        if (!isStruct(entryType)) return null;
+        String name = entryType.substring(TYPE_PREFIX.length());
+        if (isArray(name)) name = name.substring(0, name.length() - 2);
+        return compile(name, 0);
+    }
+
+    private StructLayout compile(String name, int depth) {
+        if (layouts.containsKey(name)) return layouts.get(name);
+        StructLayout layout = (depth < MAX_DEPTH ? build(name, depth) : null);
+        layouts.put(name, layout);
+        return layout;
+    }
+
+    private StructLayout build(String name, int depth) {
+        String schema = schemas.get(name);
+        if (schema == null) return null;
+
+        // two passes over the declarations - the first works out the size, the second lays the fields out
+        int size = lay(schema, depth, null);
+        if (size < 0) return null;
+        StructLayout layout = new StructLayout(name, size);
+        lay(schema, depth, layout);
+        return layout;
+    }
+
+    // Walks the declarations, adding the fields to layout if one is given; returns the total size, or -1 if the schema is
+    // malformed or refers to a struct we can't compile
+    private int lay(String schema, int depth, StructLayout layout) {
+        int offset = 0;
+        int bitStart = 0, bitStorage = 0, bitPosition = 0;   // the bit-field storage unit being filled, if any
+
+        for (String declaration : schema.split(";")) {
+            declaration = declaration.trim();
+            if (declaration.isEmpty()) continue;
+            if (declaration.startsWith("enum")) {
+                int close = declaration.indexOf('}');
+                if (close < 0) return -1;
+                declaration = declaration.substring(close + 1).trim();
+            }
+
+            int space = declaration.indexOf(' ');
+            if (space < 0) return -1;
+            String typeName = declaration.substring(0, space).trim();
+            String fieldName = declaration.substring(space + 1).replace(" ", "");
+            int count = 1;
+            int bits = 0;
+            boolean array = false;
+            try {
+                if (fieldName.endsWith("]") && fieldName.indexOf('[') > 0) {
+                    count = Integer.parseInt(fieldName.substring(fieldName.indexOf('[') + 1, fieldName.length() - 1));
+                    fieldName = fieldName.substring(0, fieldName.indexOf('['));
+                    array = true;
+                } else if (fieldName.indexOf(':') > 0) {
+                    bits = Integer.parseInt(fieldName.substring(fieldName.indexOf(':') + 1));
+                    fieldName = fieldName.substring(0, fieldName.indexOf(':'));
+                }
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+            if (fieldName.isEmpty() || count < 0) return -1;
+
+            byte kind = StructLayout.kindOf(typeName);
+            if (bits > 0) {
+                // bit-fields - only integers and bools (which must be a single bit)
+                if (kind < 0 || kind == StructLayout.FLOAT || kind == StructLayout.DOUBLE || kind == StructLayout.CHAR) return -1;
+                int storage = (kind == StructLayout.BOOL ? (bitStorage > 0 ? bitStorage : 1) : StructLayout.sizeOf(kind));
+                if (bits > storage * 8 || (kind == StructLayout.BOOL && bits != 1)) return -1;
+                if (bitStorage != storage || bitPosition + bits > storage * 8) {
+                    bitStart = offset;
+                    bitStorage = storage;
+                    bitPosition = 0;
+                    offset += storage;
+                }
+                if (layout != null) layout.add(fieldName, kind, bitStart, bitStorage, bitPosition, bits);
+                bitPosition += bits;
+                continue;
+            }
+            bitStorage = 0;
+
+            if (kind < 0) {
+                StructLayout nested = compile(typeName, depth + 1);
+                if (nested == null) return -1;
+                for (int i = 0; i < count; i++) {
+                    if (layout != null) layout.addNested(array ? fieldName + "[" + i + "]" : fieldName, nested, offset);
+                    offset += nested.getSize();
+                }
+            } else if (kind == StructLayout.CHAR) {
+                if (layout != null) layout.add(fieldName, kind, offset, count, 0, 0);
+                offset += count;
+            } else {
+                int length = StructLayout.sizeOf(kind);
+                for (int i = 0; i < count; i++) {
+                    if (layout != null) layout.add(array ? fieldName + "[" + i + "]" : fieldName, kind, offset, length, 0, 0);
+                    offset += length;
+                }
+            }
+        }
+        return offset;
+    }
+}
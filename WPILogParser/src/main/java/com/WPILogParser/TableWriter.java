@@ -0,0 +1,40 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+
+// ****************************************************************************************
+// One tabular output, written a row at a time and a cell at a time from the left - a sheet
+// of a workbook, a CSV file.  The raw dump and the analysis are written through this so
+// the same rows can go to whichever formats were asked for (-format), with the workbook
+// just one of them.  Nothing is kept beyond what the format itself needs to buffer.
+// ****************************************************************************************
+
+interface TableWriter {
+    void text(String value);
+
+    void number(double value);
+
+    void blank();
+
+    void endRow();
+
+    // A whole row of text, e.g. the header
+    default void row(String... values) {
+        for (String value : values) text(value);
+        endRow();
+    }
+
+    // Rows written so far
+    int getRows();
+
+    // What the output is, for messages - "Excel file", "CSV file"
+    String getKind();
+
+    String getPath();
+
+    // Writes out anything still held and closes the output
+    void finish() throws IOException;
+
+    // Closes the output without finishing it, and removes whatever was written
+    void abort();
+}
@@ -0,0 +1,137 @@
+package com.WPILogParser;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// ****************************************************************************************
+// A wpilog reader of our own, in place of WPILib's DataLogReader.  The file is memory
+// mapped rather than read, and iterating hands back the same WPILogRecord over and over,
+// just repointed at the next record - nothing is copied out of the file until one of the
+// record's get functions asks for it.  Unlike DataLogReader, closing this (ideally via
+// try-with-resources) releases the file straight away, so there's no need to coax the
+// garbage collector into letting go of the file handle.
+//
+// File layout: "WPILOG", a 2-byte version, a 4-byte extra header length and the extra
+// header itself, then records back to back.  Each record starts with a 1-byte bitfield
+// giving the byte lengths of the entry ID (bits 0-1), payload size (bits 2-3) and
+// timestamp (bits 4-6), each stored less one, followed by those three values and the
+// payload.  Everything is little-endian.
+// ****************************************************************************************
+
+public final class WPILogFile implements Iterable<WPILogRecord>, AutoCloseable {
+    private static final int HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private boolean closed = false;
+
+    public WPILogFile(String filename) throws IOException {
+        this(Paths.get(filename));
+    }
+
+    public WPILogFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("log is too large to map (" + size + " bytes)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public boolean isValid() {
+        return buffer.limit() >= HEADER_SIZE
+            && buffer.get(0) == 'W' && buffer.get(1) == 'P' && buffer.get(2) == 'I'
+            && buffer.get(3) == 'L' && buffer.get(4) == 'O' && buffer.get(5) == 'G'
+            && getVersion() >= 0x0100
+            && HEADER_SIZE + (long) getExtraHeaderSize() <= buffer.limit();
+    }
+
+    public int getVersion() {
+        return buffer.getShort(6) & 0xffff;
+    }
+
+    public String getExtraHeader() {
+        byte[] bytes = new byte[getExtraHeaderSize()];
+        buffer.get(HEADER_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Offset of the first record in the file
+    public int getDataOffset() {
+        return HEADER_SIZE + getExtraHeaderSize();
+    }
+
+    public long getSize() {
+        return buffer.limit();
+    }
+
+    // Note the record handed back by the iterator is reused - it's only good until the next call to next()
+    @Override
+    public Iterator<WPILogRecord> iterator() {
+        return iterator(getDataOffset());
+    }
+
+    // Iterates from an arbitrary offset, which must be the start of a record
+    public Iterator<WPILogRecord> iterator(int offset) {
+        return new Iterator<WPILogRecord>() {
+            private final WPILogRecord record = new WPILogRecord(buffer);
+            private int position = offset;
+
+            @Override
+            public boolean hasNext() {
+                // a record cut short (say, by the robot losing power) ends the iteration rather than failing it
+                return !closed && record.peek(position);
+            }
+
+            @Override
+            public WPILogRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                position = record.moveTo(position);
+                return record;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        unmap(buffer);
+        channel.close();
+    }
+
+    private int getExtraHeaderSize() {
+        return buffer.getInt(8);
+    }
+
+    // The JDK only unmaps a file once its buffer is garbage collected, which is exactly the file-handle problem we had with
+    // DataLogReader.  The cleaner can be invoked directly through Unsafe; if that's not available we fall back to waiting
+    // on the GC.  Nothing may touch the buffer (or a record from it) afterwards.
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // the mapping will be released whenever the buffer is collected
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.WPILogParser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+
+// ****************************************************************************************
+// A view of one record in a WPILogFile.  Only the record header is parsed when the view is
+// moved onto a record; the payload stays in the mapped file and is decoded by whichever
+// get function is called.  Besides the usual whole-value getters (which match WPILib's
+// DataLogRecord), array payloads can be read an element at a time without allocating.
+//
+// Payload encodings: boolean is 1 byte, int64 8, float 4, double 8, string is raw UTF-8.
+// Arrays of those are just the elements back to back.  string[] is a 4-byte count followed
+// by a 4-byte length and UTF-8 bytes for each string.
+// ****************************************************************************************
+
+public final class WPILogRecord {
+    private static final int CONTROL_START = 0;
+    private static final int CONTROL_FINISH = 1;
+    private static final int CONTROL_SET_METADATA = 2;
+
+    // Data from a start control record - the fields match WPILib's DataLogRecord.StartRecordData
+    public static final class StartRecordData {
+        public final int entry;
+        public final String name;
+        public final String type;
+        public final String metadata;
+
+        StartRecordData(int entry, String name, String type, String metadata) {
+            this.entry = entry;
+            this.name = name;
+            this.type = type;
+            this.metadata = metadata;
+        }
+    }
+
+    // Data from a set metadata control record
+    public static final class MetadataRecordData {
+        public final int entry;
+        public final String metadata;
+
+        MetadataRecordData(int entry, String metadata) {
+            this.entry = entry;
+            this.metadata = metadata;
+        }
+    }
+
+    private final ByteBuffer buffer;
+
+    private int offset;        // start of the record header
+    private int entry;
+    private int size;          // payload size
+    private long timestamp;
+    private int payload;       // start of the payload
+
+    WPILogRecord(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    // Whether a complete record starts at the given offset
+    boolean peek(int position) {
+        int limit = buffer.limit();
+        if (position >= limit) return false;
+        int lengths = buffer.get(position) & 0xff;
+        int entryLength = (lengths & 0x3) + 1;
+        int sizeLength = ((lengths >> 2) & 0x3) + 1;
+        int timestampLength = ((lengths >> 4) & 0x7) + 1;
+        int headerLength = 1 + entryLength + sizeLength + timestampLength;
+        if ((long) position + headerLength > limit) return false;
+        long payloadSize = readUnsigned(position + 1 + entryLength, sizeLength);
+        return (long) position + headerLength + payloadSize <= limit;
+    }
+
+    // Points this view at the record starting at the given offset and returns the offset of the record after it.  The
+    // caller is expected to have checked the record is complete (see peek).
+    int moveTo(int position) {
+        int lengths = buffer.get(position) & 0xff;
+        int entryLength = (lengths & 0x3) + 1;
+        int sizeLength = ((lengths >> 2) & 0x3) + 1;
+        int timestampLength = ((lengths >> 4) & 0x7) + 1;
+
+        offset = position;
+        int p = position + 1;
+        entry = (int) readUnsigned(p, entryLength);
+        p += entryLength;
+        size = (int) readUnsigned(p, sizeLength);
+        p += sizeLength;
+        timestamp = readUnsigned(p, timestampLength);
+        p += timestampLength;
+        payload = p;
+        return payload + size;
+    }
+
+    // Offset of this record within the file
+    public int getOffset() {
+        return offset;
+    }
+
+    // Offset just past the end of this record, where the next one starts
+    public int getEnd() {
+        return payload + size;
+    }
+
+    public int getEntry() {
+        return entry;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isControl() {
+        return entry == 0;
+    }
+
+    public boolean isStart() {
+        return isControl() && size >= 17 && getControlType() == CONTROL_START;
+    }
+
+    public boolean isFinish() {
+        return isControl() && size == 5 && getControlType() == CONTROL_FINISH;
+    }
+
+    public boolean isSetMetadata() {
+        return isControl() && size >= 9 && getControlType() == CONTROL_SET_METADATA;
+    }
+
+    public StartRecordData getStartData() {
+        if (!isStart()) throw new InputMismatchException("not a start record");
+        int p = payload + 5;
+        int nameLength = readLength(p);
+        String name = readString(p + 4, nameLength);
+        p += 4 + nameLength;
+        int typeLength = readLength(p);
+        String type = readString(p + 4, typeLength);
+        p += 4 + typeLength;
+        int metadataLength = readLength(p);
+        String metadata = readString(p + 4, metadataLength);
+        return new StartRecordData(buffer.getInt(payload + 1), name, type, metadata);
+    }
+
+    public int getFinishEntry() {
+        if (!isFinish()) throw new InputMismatchException("not a finish record");
+        return buffer.getInt(payload + 1);
+    }
+
+    public MetadataRecordData getSetMetadataData() {
+        if (!isSetMetadata()) throw new InputMismatchException("not a set metadata record");
+        int length = readLength(payload + 5);
+        return new MetadataRecordData(buffer.getInt(payload + 1), readString(payload + 9, length));
+    }
+
+    // The payload as a read-only little-endian buffer (a view onto the file, not a copy)
+    public ByteBuffer getRaw() {
+        return buffer.slice(payload, size).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public boolean getBoolean() {
+        checkSize(1);
+        return buffer.get(payload) != 0;
+    }
+
+    public long getInteger() {
+        checkSize(8);
+        return buffer.getLong(payload);
+    }
+
+    public float getFloat() {
+        checkSize(4);
+        return buffer.getFloat(payload);
+    }
+
+    public double getDouble() {
+        checkSize(8);
+        return buffer.getDouble(payload);
+    }
+
+    public String getString() {
+        return readString(payload, size);
+    }
+
+    public int getBooleanArraySize() {
+        return size;
+    }
+
+    public boolean getBooleanArrayElement(int index) {
+        return buffer.get(payload + checkIndex(index, 1)) != 0;
+    }
+
+    public int getIntegerArraySize() {
+        return size / 8;
+    }
+
+    public long getIntegerArrayElement(int index) {
+        return buffer.getLong(payload + checkIndex(index, 8));
+    }
+
+    public int getFloatArraySize() {
+        return size / 4;
+    }
+
+    public float getFloatArrayElement(int index) {
+        return buffer.getFloat(payload + checkIndex(index, 4));
+    }
+
+    public int getDoubleArraySize() {
+        return size / 8;
+    }
+
+    public double getDoubleArrayElement(int index) {
+        return buffer.getDouble(payload + checkIndex(index, 8));
+    }
+
+    public boolean[] getBooleanArray() {
+        boolean[] values = new boolean[getBooleanArraySize()];
+        for (int i = 0; i < values.length; i++) values[i] = buffer.get(payload + i) != 0;
+        return values;
+    }
+
+    public long[] getIntegerArray() {
+        checkMultiple(8);
+        long[] values = new long[getIntegerArraySize()];
+        for (int i = 0; i < values.length; i++) values[i] = buffer.getLong(payload + i * 8);
+        return values;
+    }
+
+    public float[] getFloatArray() {
+        checkMultiple(4);
+        float[] values = new float[getFloatArraySize()];
+        for (int i = 0; i < values.length; i++) values[i] = buffer.getFloat(payload + i * 4);
+        return values;
+    }
+
+    public double[] getDoubleArray() {
+        checkMultiple(8);
+        double[] values = new double[getDoubleArraySize()];
+        for (int i = 0; i < values.length; i++) values[i] = buffer.getDouble(payload + i * 8);
+        return values;
+    }
+
+    public String[] getStringArray() {
+        if (size < 4) throw new InputMismatchException("string[] payload too short");
+        int count = readLength(payload);
+        int end = payload + size;
+        int p = payload + 4;
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (p + 4 > end) throw new InputMismatchException("string[] payload too short");
+            int length = readLength(p);
+            if (p + 4 + length > end) throw new InputMismatchException("string[] payload too short");
+            values[i] = readString(p + 4, length);
+            p += 4 + length;
+        }
+        return values;
+    }
+
+    // Little-endian reads at a byte offset into the payload, for decoding structs - the caller (StructLayout) has already
+    // checked the offset is inside the payload
+    byte getPayloadByte(int offset) {
+        return buffer.get(payload + offset);
+    }
+
+    short getPayloadShort(int offset) {
+        return buffer.getShort(payload + offset);
+    }
+
+    int getPayloadInt(int offset) {
+        return buffer.getInt(payload + offset);
+    }
+
+    long getPayloadLong(int offset) {
+        return buffer.getLong(payload + offset);
+    }
+
+    float getPayloadFloat(int offset) {
+        return buffer.getFloat(payload + offset);
+    }
+
+    double getPayloadDouble(int offset) {
+        return buffer.getDouble(payload + offset);
+    }
+
+    long getPayloadUnsigned(int offset, int length) {
+        return readUnsigned(payload + offset, length);
+    }
+
+    String getPayloadString(int offset, int length) {
+        return readString(payload + offset, length);
+    }
+
+    private int getControlType() {
+        return buffer.get(payload);
+    }
+
+    private long readUnsigned(int position, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (long) (buffer.get(position + i) & 0xff) << (8 * i);
+        }
+        return value;
+    }
+
+    private int readLength(int position) {
+        int length = buffer.getInt(position);
+        if (length < 0 || position + 4L + length > buffer.limit()) throw new InputMismatchException("bad string length");
+        return length;
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkSize(int expected) {
+        if (size != expected) throw new InputMismatchException("expected " + expected + " byte payload, got " + size);
+    }
+
+    private void checkMultiple(int elementSize) {
+        if (size % elementSize != 0) throw new InputMismatchException("payload is not a whole number of elements");
+    }
+
+    private int checkIndex(int index, int elementSize) {
+        if (index < 0 || index >= size / elementSize) throw new IndexOutOfBoundsException(index);
+        return index * elementSize;
+    }
+}